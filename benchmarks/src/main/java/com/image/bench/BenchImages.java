@@ -0,0 +1,59 @@
+package com.image.bench;
+
+import com.image.PixelRaster;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试使用的合成图像：4:3 画幅，平滑渐变叠加噪声，保证各算子都有非零的幅值。
+ */
+final class BenchImages {
+
+    private BenchImages() {
+    }
+
+    // 指定百万像素数对应的宽度
+    static int width(int megapixels) {
+        return (int) Math.round(Math.sqrt(megapixels * 1_000_000.0 * 4 / 3));
+    }
+
+    static int height(int megapixels) {
+        return (int) Math.round(megapixels * 1_000_000.0 / width(megapixels));
+    }
+
+    // 紧凑排列的不透明 ARGB 像素，种子固定以便结果可复现
+    static int[] argb(int width, int height) {
+        int[] pixels = new int[width * height];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = ((x * 255 / width) + (y * 255 / height)) / 2;
+                int r = Math.min(255, base + random.nextInt(32));
+                int g = Math.min(255, base + random.nextInt(32));
+                int b = Math.min(255, base + random.nextInt(32));
+                pixels[y * width + x] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return pixels;
+    }
+
+    static WritableImage fxImage(int width, int height) {
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(),
+                argb(width, height), 0, width);
+        return image;
+    }
+
+    static BufferedImage awtImage(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        image.setRGB(0, 0, width, height, argb(width, height), 0, width);
+        return image;
+    }
+
+    static PixelRaster raster(int width, int height) {
+        return PixelRaster.fromArgb(argb(width, height), width, height);
+    }
+}
@@ -0,0 +1,60 @@
+package com.image.bench;
+
+import com.image.PixelRaster;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaFX 与 AWT 图像之间的转换，以及从 JavaFX 图像直接读取亮度平面。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class ConversionBenchmark {
+
+    @Param({"1", "12", "24", "50"})
+    public int size;
+
+    private WritableImage fxImage;
+    private BufferedImage awtImage;
+
+    @Setup
+    public void setUp() {
+        int width = BenchImages.width(size);
+        int height = BenchImages.height(size);
+        fxImage = BenchImages.fxImage(width, height);
+        awtImage = BenchImages.awtImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Benchmark
+    public BufferedImage fxToAwt() {
+        return SwingFXUtils.fromFXImage(fxImage, null);
+    }
+
+    @Benchmark
+    public WritableImage awtToFx() {
+        return SwingFXUtils.toFXImage(awtImage, null);
+    }
+
+    @Benchmark
+    public PixelRaster fxToRaster() {
+        return PixelRaster.of(fxImage);
+    }
+}
@@ -0,0 +1,57 @@
+package com.image.bench;
+
+import com.image.PixelRaster;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 裁剪：与 ImageUtils.cropImage 相同的区域读取，以及只读取区域的亮度平面（ROI 检测的输入）。
+ * 区域取图像中央、边长为一半的矩形。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class CropBenchmark {
+
+    @Param({"1", "12", "24", "50"})
+    public int size;
+
+    private WritableImage image;
+    private int x, y, width, height;
+
+    @Setup
+    public void setUp() {
+        int imageWidth = BenchImages.width(size);
+        int imageHeight = BenchImages.height(size);
+        image = BenchImages.fxImage(imageWidth, imageHeight);
+        width = imageWidth / 2;
+        height = imageHeight / 2;
+        x = imageWidth / 4;
+        y = imageHeight / 4;
+    }
+
+    @Benchmark
+    public WritableImage cropImage() {
+        return new WritableImage(image.getPixelReader(), x, y, width, height);
+    }
+
+    @Benchmark
+    public PixelRaster regionRaster() {
+        return PixelRaster.of(image, x, y, width, height);
+    }
+}
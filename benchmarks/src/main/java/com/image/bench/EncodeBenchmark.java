@@ -0,0 +1,69 @@
+package com.image.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageIO 编码，输出写入只计数的流，不受磁盘影响。返回值为编码后的字节数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class EncodeBenchmark {
+
+    @Param({"1", "12", "24", "50"})
+    public int size;
+
+    @Param({"png", "jpg", "bmp"})
+    public String format;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        // JPEG 与 BMP 编码器不接受带 alpha 的图像
+        int type = format.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        image = BenchImages.awtImage(BenchImages.width(size), BenchImages.height(size), type);
+    }
+
+    @Benchmark
+    public long encode() throws IOException {
+        CountingStream out = new CountingStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IllegalStateException("No writer for " + format);
+        }
+        return out.count;
+    }
+
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
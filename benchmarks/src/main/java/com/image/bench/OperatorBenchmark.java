@@ -0,0 +1,74 @@
+package com.image.bench;
+
+import com.image.EdgeDetectionTask;
+import com.image.ImageAnalysisCache;
+import com.image.ImageOperator;
+import com.image.OperatorRegistry;
+import com.image.ParallelBands;
+import com.image.PixelRaster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 边缘检测算子：整图计算，以及幅值平面已缓存时仅改变强度的重映射。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true", "-Dprism.order=sw"})
+public class OperatorBenchmark {
+
+    @Param({"1", "12", "24", "50"})
+    public int size;
+
+    @Param({OperatorRegistry.ROBERTS, OperatorRegistry.SOBEL, OperatorRegistry.LAPLACIAN})
+    public String operator;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private PixelRaster source;
+    private ImageOperator imageOperator;
+    private int[] output;
+    private ImageAnalysisCache cache;
+    private int strength;
+
+    @Setup
+    public void setUp() {
+        ParallelBands.setParallelism(threads);
+        int width = BenchImages.width(size);
+        int height = BenchImages.height(size);
+        source = BenchImages.raster(width, height);
+        imageOperator = OperatorRegistry.get(operator);
+        output = new int[width * height];
+        cache = new ImageAnalysisCache(Long.MAX_VALUE);
+        cache.render(source, imageOperator, 50, output, () -> false, rows -> { });
+    }
+
+    @Benchmark
+    public int[] detect() {
+        EdgeDetectionTask.detect(source, imageOperator, 50, output);
+        return output;
+    }
+
+    // 每次调用换一个强度，只走查表重映射
+    @Benchmark
+    public int[] remapStrength() {
+        strength = strength % 90 + 10;
+        cache.render(source, imageOperator, strength, output, () -> false, rows -> { });
+        return output;
+    }
+}
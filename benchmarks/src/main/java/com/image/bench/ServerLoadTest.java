@@ -0,0 +1,197 @@
+package com.image.bench;
+
+import com.image.EdgeDetectionTask;
+import com.image.ImageServer;
+import com.image.OperatorRegistry;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ImageServer} 的负载生成器：若干客户端线程在给定时长内持续 POST 小图像，
+ * 结束时输出吞吐量、p50/p90/p99 延迟与被拒绝（503）的请求数。
+ * 不指定 --url 时在本进程内以随机端口启动服务，并用 --workers/--queue/--batch 配置它。
+ * 每个客户端的第一个响应会与本地计算的结果逐像素比较。
+ * <pre>
+ * java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar com.image.bench.ServerLoadTest \
+ *     [--url http://localhost:8080] [--clients 32] [--seconds 10] [--size 256x192] [--op sobel] [--images 8]
+ *     [--workers N] [--queue 64] [--batch 16]
+ * </pre>
+ */
+public final class ServerLoadTest {
+
+    private ServerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        String url = null;
+        int clients = 32;
+        int seconds = 10;
+        int width = 256;
+        int height = 192;
+        String operator = OperatorRegistry.SOBEL;
+        int imageCount = 8;
+        List<String> serverArgs = new ArrayList<>(List.of("--port", "0"));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> url = value;
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                case "--size" -> {
+                    String[] parts = value.split("x");
+                    width = Integer.parseInt(parts[0]);
+                    height = Integer.parseInt(parts[1]);
+                }
+                case "--op" -> operator = value;
+                case "--images" -> imageCount = Integer.parseInt(value);
+                case "--workers", "--queue", "--batch" -> serverArgs.addAll(List.of(args[i], value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ImageServer server = null;
+        if (url == null) {
+            server = new ImageServer(ImageServer.Options.parse(serverArgs.toArray(new String[0])));
+            url = "http://127.0.0.1:" + server.start();
+        }
+        try {
+            List<byte[]> images = images(imageCount, width, height);
+            URI target = URI.create(url + "/process?op=" + operator + "&strength=50&format=png");
+            Result result = run(target, images, clients, Duration.ofSeconds(seconds), operator);
+            System.out.println(result.report(clients, seconds, width, height));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    // 互不相同的 PNG 图像，避免服务端或客户端的任何缓存影响结果
+    private static List<byte[]> images(int count, int width, int height) throws IOException {
+        List<byte[]> images = new ArrayList<>();
+        int[] pixels = BenchImages.argb(width, height * count);
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            image.setRGB(0, 0, width, height, pixels, i * width * height, width);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            images.add(out.toByteArray());
+        }
+        return images;
+    }
+
+    private static Result run(URI target, List<byte[]> images, int clients, Duration duration, String operator)
+            throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Result result = new Result();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread thread = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                boolean verified = false;
+                for (int n = 0; System.nanoTime() < deadline; n++) {
+                    byte[] body = images.get((client + n) % images.size());
+                    HttpRequest request = HttpRequest.newBuilder(target)
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        long nanos = System.nanoTime() - begin;
+                        if (response.statusCode() == 200) {
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = nanos;
+                            if (!verified) {
+                                verify(body, response.body(), operator, result);
+                                verified = true;
+                            }
+                        } else if (response.statusCode() == 503) {
+                            result.rejected.increment();
+                        } else {
+                            result.failed.increment();
+                        }
+                    } catch (IOException e) {
+                        result.failed.increment();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                result.add(Arrays.copyOf(latencies, count));
+            }, "load-client-" + c);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return result;
+    }
+
+    // 服务端结果必须与本地直接计算的结果一致
+    private static void verify(byte[] request, byte[] response, String operator, Result result) {
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(request));
+            BufferedImage expected = EdgeDetectionTask.detect(source, OperatorRegistry.get(operator), 50);
+            BufferedImage actual = ImageIO.read(new ByteArrayInputStream(response));
+            int w = expected.getWidth();
+            int h = expected.getHeight();
+            boolean same = actual.getWidth() == w && actual.getHeight() == h
+                    && Arrays.equals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+            (same ? result.verified : result.mismatched).increment();
+        } catch (IOException e) {
+            result.mismatched.increment();
+        }
+    }
+
+    private static final class Result {
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder verified = new LongAdder();
+        final LongAdder mismatched = new LongAdder();
+        private final List<long[]> latencies = new ArrayList<>();
+
+        synchronized void add(long[] clientLatencies) {
+            latencies.add(clientLatencies);
+        }
+
+        synchronized String report(int clients, int seconds, int width, int height) {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return String.format(Locale.ROOT,
+                    "%d clients, %dx%d images, %d s%n"
+                            + "ok %d, rejected (503) %d, failed %d, verified %d, mismatched %d%n"
+                            + "throughput %.1f req/s%n"
+                            + "latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f",
+                    clients, width, height, seconds,
+                    all.length, rejected.sum(), failed.sum(), verified.sum(), mismatched.sum(),
+                    all.length / (double) seconds,
+                    percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
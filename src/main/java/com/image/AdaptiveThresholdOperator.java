@@ -0,0 +1,137 @@
+package com.image;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * 局部自适应阈值：像素亮度高于其 31x31 邻域均值加偏移量时为白色，否则为黑色。
+ * <p>
+ * 邻域均值由积分图（summed-area table）求出，每个像素固定四次查表，耗时与窗口大小无关。
+ * 积分图用 int 存放，整幅图像的累加和可能溢出，但窗口和远小于 2^31，按补码相减的结果仍然正确。
+ * 偏移量为 500 / 强度，强度 50 时为 10，强度越大白色区域越多。
+ */
+public class AdaptiveThresholdOperator implements MultiPassOperator {
+
+    // 邻域窗口半径
+    private static final int WINDOW_RADIUS = 15;
+
+    // 行带版本无法得知强度，按默认强度 50 计算
+    private static final int DEFAULT_STRENGTH = 50;
+
+    @Override
+    public String getId() {
+        return OperatorRegistry.ADAPTIVE;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Adaptive Threshold";
+    }
+
+    @Override
+    public int getRadius() {
+        return WINDOW_RADIUS;
+    }
+
+    // 窗口在图像边界处截断，带 WINDOW_RADIUS 光晕的瓦片与整图结果一致
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    static int offset(int strength) {
+        return 500 / Math.max(1, strength);
+    }
+
+    // 行带版本只为行带及其上下窗口建立积分图，结果经查找表输出
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int height = source.getHeight();
+        int firstRow = Math.max(0, rowStart);
+        int lastRow = Math.min(height, rowEnd);
+        if (firstRow >= lastRow) {
+            return;
+        }
+        int top = Math.max(0, firstRow - WINDOW_RADIUS);
+        int bottom = Math.min(height, lastRow + WINDOW_RADIUS);
+        int width = source.getWidth();
+        int[] table = new int[(width + 1) * (bottom - top + 1)];
+        integrateRows(source.getGray(), width, top, table, 0, bottom - top);
+        integrateColumns(table, width, bottom - top, 0, width + 1);
+        binarize(source, output, firstRow, lastRow, table, top, bottom, offset(DEFAULT_STRENGTH),
+                EdgeLut.map(lut, 255), EdgeLut.map(lut, 0));
+    }
+
+    @Override
+    public void process(PixelRaster source, int[] output, int strength, BooleanSupplier cancelled, IntConsumer progress) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] table = new int[(width + 1) * (height + 1)];
+        byte[] gray = source.getGray();
+        IntConsumer ignore = rows -> { };
+
+        // 先并行求每行的前缀和，再按列条带并行沿列累加
+        ParallelBands.forEach(0, height, (rowStart, rowEnd) ->
+                integrateRows(gray, width, 0, table, rowStart, rowEnd), cancelled, ignore);
+        ParallelBands.forEach(0, width + 1, (columnStart, columnEnd) ->
+                integrateColumns(table, width, height, columnStart, columnEnd), cancelled, ignore);
+
+        int offset = offset(strength);
+        int white = PixelRaster.grayArgb(255);
+        int black = PixelRaster.grayArgb(0);
+        ParallelBands.forEach(0, height, (rowStart, rowEnd) ->
+                binarize(source, output, rowStart, rowEnd, table, 0, height, offset, white, black), cancelled, progress);
+    }
+
+    /**
+     * 积分图第 y + 1 行存放源图像第 top + y 行的行内前缀和，第 0 行与第 0 列为 0。
+     * 处理源图像相对 top 的行 [rowStart, rowEnd)。
+     */
+    private static void integrateRows(byte[] gray, int width, int top, int[] table, int rowStart, int rowEnd) {
+        int stride = width + 1;
+        for (int y = rowStart; y < rowEnd; y++) {
+            int from = (top + y) * width;
+            int to = (y + 1) * stride;
+            int sum = 0;
+            for (int x = 0; x < width; x++) {
+                sum += gray[from + x] & 0xff;
+                table[to + x + 1] = sum;
+            }
+        }
+    }
+
+    // 对列 [columnStart, columnEnd) 沿列累加，完成后每项为其左上矩形的和
+    private static void integrateColumns(int[] table, int width, int rows, int columnStart, int columnEnd) {
+        int stride = width + 1;
+        for (int y = 2; y <= rows; y++) {
+            int row = y * stride;
+            for (int x = columnStart; x < columnEnd; x++) {
+                table[row + x] += table[row - stride + x];
+            }
+        }
+    }
+
+    // 积分图覆盖源图像的行 [top, bottom)，窗口在图像与积分图边界处截断
+    private static void binarize(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] table,
+                                 int top, int bottom, int offset, int white, int black) {
+        byte[] gray = source.getGray();
+        int width = source.getWidth();
+        int stride = width + 1;
+        for (int y = rowStart; y < rowEnd; y++) {
+            int y0 = Math.max(top, y - WINDOW_RADIUS) - top;
+            int y1 = Math.min(bottom, y + WINDOW_RADIUS + 1) - top;
+            int upper = y0 * stride;
+            int lower = y1 * stride;
+            int windowRows = y1 - y0;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.max(0, x - WINDOW_RADIUS);
+                int x1 = Math.min(width, x + WINDOW_RADIUS + 1);
+                int sum = table[lower + x1] - table[lower + x0] - table[upper + x1] + table[upper + x0];
+                int count = windowRows * (x1 - x0);
+                // 比较 value > sum / count + offset，两边同乘 count 避免除法
+                output[row + x] = (gray[row + x] & 0xff) * count > sum + offset * count ? white : black;
+            }
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 无界面的批处理入口：对目录或 zip 中的所有图像执行裁剪与边缘检测并写入输出目录。
+ * <p>
+ * 解码、处理、编码分别在独立线程上运行，阶段之间用有界队列连接，因此三者可以重叠执行，
+ * 同时内存中最多只有队列容量个图像。结束时输出吞吐量统计。
+ * <p>
+ * 指定 {@code --tiled} 时改用 {@link TiledProcessor} 逐个处理图像文件，堆占用与图像尺寸无关，
+ * 每个图像的结果以 PNG 瓦片写入输出目录下的 {@code <名称>_tiles} 目录。
+ * <p>
+ * 输入与输出都是 zip 时由 {@link ZipBatchTransformer} 按条目顺序流式写出新的压缩包，
+ * {@code --concurrency} 与 {@code --inflight-mb} 控制并发条目数与在途内存。
+ * <pre>
+ * java -Djava.awt.headless=true -p &lt;module path&gt; -m com.image/com.image.BatchProcessor \
+ *     --input scans.zip --output out --op sobel --strength 60 [--crop x,y,w,h]
+ *     [--format png] [--decoders 1] [--encoders 2] [--queue 4] [--parallelism N] [--tiled]
+ * java ... com.image.BatchProcessor --input scans.zip --output edges.zip --op sobel
+ *     [--concurrency N] [--inflight-mb 512]
+ * </pre>
+ */
+public class BatchProcessor {
+
+    private final Options options;
+    private final Stats stats = new Stats();
+
+    public BatchProcessor(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        // 必须在任何 AWT 类初始化之前设置
+        System.setProperty("java.awt.headless", "true");
+
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            Stats stats = new BatchProcessor(options).run();
+            System.out.println(stats.summary());
+            System.exit(stats.failed.sum() == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch processing failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // 执行整个流水线，返回统计信息
+    public Stats run() throws IOException, InterruptedException {
+        if (options.parallelism > 0) {
+            ParallelBands.setParallelism(options.parallelism);
+        }
+        if (options.zipOutput) {
+            return runZip();
+        }
+        Files.createDirectories(options.output);
+        if (options.tiled) {
+            return runTiled();
+        }
+
+        ZipFile zipFile = null;
+        try {
+            List<Source> sources;
+            if (Files.isDirectory(options.input)) {
+                sources = listDirectory(options.input);
+            } else if (options.input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                zipFile = new ZipFile(options.input.toFile());
+                sources = listZip(zipFile);
+            } else {
+                throw new IOException("Input must be a directory or a .zip file: " + options.input);
+            }
+
+            BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(options.queueCapacity);
+            BlockingQueue<Job> processed = new ArrayBlockingQueue<>(options.queueCapacity);
+            BlockingQueue<Source> pending = new ArrayBlockingQueue<>(Math.max(1, sources.size()) + options.decoders);
+            pending.addAll(sources);
+            for (int i = 0; i < options.decoders; i++) {
+                pending.add(Source.END);
+            }
+
+            long start = System.nanoTime();
+            List<Thread> threads = new ArrayList<>();
+            AtomicInteger decodersLeft = new AtomicInteger(options.decoders);
+            for (int i = 0; i < options.decoders; i++) {
+                // 最后一个退出的解码线程负责向下游发送结束标记
+                threads.add(start("decode-" + i, () -> decodeLoop(pending, decoded), () -> {
+                    if (decodersLeft.decrementAndGet() == 0) {
+                        decoded.put(Job.END);
+                    }
+                }));
+            }
+            threads.add(start("process", () -> processLoop(decoded, processed), () -> {
+                for (int i = 0; i < options.encoders; i++) {
+                    processed.put(Job.END);
+                }
+            }));
+            for (int i = 0; i < options.encoders; i++) {
+                threads.add(start("encode-" + i, () -> encodeLoop(processed), () -> { }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            stats.wallNanos = System.nanoTime() - start;
+            return stats;
+        } finally {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        }
+    }
+
+    // 分块模式：输入为单个图像文件或目录，逐个处理，瓦片内部并行
+    private Stats runTiled() throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(options.input)) {
+            try (Stream<Path> paths = Files.walk(options.input)) {
+                files = paths.filter(Files::isRegularFile)
+                        .filter(path -> ImageUtils.isImageFileName(path.getFileName().toString()))
+                        .sorted()
+                        .toList();
+            }
+        } else if (Files.isRegularFile(options.input)) {
+            files = List.of(options.input);
+        } else {
+            throw new IOException("Input must be an image file or a directory: " + options.input);
+        }
+
+        long start = System.nanoTime();
+        for (Path file : files) {
+            String name = Files.isDirectory(options.input)
+                    ? options.input.relativize(file).toString() : file.getFileName().toString();
+            Path target = options.output.resolve(stripSuffix(name) + "_tiles");
+            long begin = System.nanoTime();
+            try {
+                stats.pixels.add(TiledProcessor.process(file, options.operator, options.strength, target));
+                stats.processNanos.add(System.nanoTime() - begin);
+                stats.completed.increment();
+            } catch (IOException | RuntimeException e) {
+                stats.failed.increment();
+                System.err.println("Failed to process " + name + ": " + e.getMessage());
+            }
+        }
+        stats.wallNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    // zip 到 zip：条目并发处理，按原顺序写出
+    private Stats runZip() throws IOException {
+        Path parent = options.output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ZipBatchTransformer transformer = new ZipBatchTransformer(options.operator, options.strength, options.format)
+                .setConcurrency(options.concurrency)
+                .setMaxBytesInFlight(options.inFlightBytes);
+        ZipBatchTransformer.Result result = transformer.transform(options.input.toFile(), options.output.toFile(),
+                () -> false, entries -> { });
+        stats.completed.add(result.getProcessed());
+        stats.skipped.add(result.getCopied());
+        stats.failed.add(result.getFailed());
+        stats.pixels.add(result.getPixels());
+        stats.wallNanos = result.wallNanos;
+        return stats;
+    }
+
+    private interface StageLoop {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * 启动一个阶段线程。处理单个图像时抛出的 Error（如解码超大扫描件时的 OutOfMemoryError）计为一次失败，
+     * 阶段随即继续处理队列中的下一项，上游不会因无人取走而阻塞；
+     * 无论线程如何退出都会执行 exit 向下游转发结束标记，因此 run() 不会永远等待。
+     */
+    private Thread start(String name, StageLoop loop, StageLoop exit) {
+        Thread thread = new Thread(() -> {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        loop.run();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        break;
+                    } catch (Throwable e) {
+                        stats.failed.increment();
+                        System.err.println("Stage " + name + " failed: " + e);
+                    }
+                }
+            } finally {
+                try {
+                    exit.run();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "batch-" + name);
+        thread.start();
+        return thread;
+    }
+
+    private void decodeLoop(BlockingQueue<Source> pending, BlockingQueue<Job> decoded) throws InterruptedException {
+        for (Source source = pending.take(); source != Source.END; source = pending.take()) {
+            long begin = System.nanoTime();
+            try (InputStream in = source.open()) {
+                BufferedImage image = ImageIO.read(in);
+                if (image == null) {
+                    stats.skipped.increment();
+                    continue;
+                }
+                stats.decodeNanos.add(System.nanoTime() - begin);
+                decoded.put(new Job(source.name(), image));
+            } catch (IOException | RuntimeException e) {
+                stats.failed.increment();
+                System.err.println("Failed to decode " + source.name() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // 处理阶段：算子内部已按行带并行，因此单线程即可占满所有核心
+    private void processLoop(BlockingQueue<Job> decoded, BlockingQueue<Job> processed) throws InterruptedException {
+        for (Job job = decoded.take(); job != Job.END; job = decoded.take()) {
+            long begin = System.nanoTime();
+            try {
+                BufferedImage image = job.image;
+                if (options.crop != null) {
+                    image = crop(image, options.crop);
+                }
+                if (options.operator != null) {
+                    image = EdgeDetectionTask.detect(image, options.operator, options.strength);
+                }
+                stats.pixels.add((long) image.getWidth() * image.getHeight());
+                stats.processNanos.add(System.nanoTime() - begin);
+                processed.put(new Job(job.name, image));
+            } catch (RuntimeException e) {
+                stats.failed.increment();
+                System.err.println("Failed to process " + job.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void encodeLoop(BlockingQueue<Job> processed) throws InterruptedException {
+        for (Job job = processed.take(); job != Job.END; job = processed.take()) {
+            long begin = System.nanoTime();
+            Path target = options.output.resolve(replaceSuffix(job.name, options.format)).normalize();
+            try {
+                // 拒绝 zip 中指向输出目录之外的条目名
+                if (!target.startsWith(options.output.normalize())) {
+                    throw new IOException("Entry escapes the output directory");
+                }
+                Files.createDirectories(target.toAbsolutePath().getParent());
+                BufferedImage image = job.image;
+                if (!hasAlphaSupport(options.format)) {
+                    image = withoutAlpha(image);
+                }
+                if (!ImageIO.write(image, options.format, target.toFile())) {
+                    throw new IOException("No writer for format " + options.format);
+                }
+                stats.encodeNanos.add(System.nanoTime() - begin);
+                stats.completed.increment();
+            } catch (IOException | RuntimeException e) {
+                stats.failed.increment();
+                System.err.println("Failed to encode " + target + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static BufferedImage crop(BufferedImage image, int[] rect) {
+        int x = Math.min(rect[0], image.getWidth() - 1);
+        int y = Math.min(rect[1], image.getHeight() - 1);
+        int width = Math.min(rect[2], image.getWidth() - x);
+        int height = Math.min(rect[3], image.getHeight() - y);
+        return image.getSubimage(x, y, width, height);
+    }
+
+    static boolean hasAlphaSupport(String format) {
+        return format.equals("png") || format.equals("gif") || format.equals("tif") || format.equals("tiff");
+    }
+
+    // JPEG/BMP 编码器不接受带 alpha 的图像
+    static BufferedImage withoutAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rgb;
+    }
+
+    private static List<Source> listDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> ImageUtils.isImageFileName(path.getFileName().toString()))
+                    .sorted()
+                    .map(path -> new Source(directory.relativize(path).toString(), () -> Files.newInputStream(path)))
+                    .toList();
+        }
+    }
+
+    private static List<Source> listZip(ZipFile zipFile) {
+        return zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && ImageUtils.isImageFileName(entry.getName()))
+                .map((ZipEntry entry) -> new Source(entry.getName(), () -> zipFile.getInputStream(entry)))
+                .toList();
+    }
+
+    private static String replaceSuffix(String name, String suffix) {
+        return stripSuffix(name) + "." + suffix;
+    }
+
+    private static String stripSuffix(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private record Source(String name, StreamOpener opener) {
+        static final Source END = new Source("", null);
+
+        InputStream open() throws IOException {
+            return opener.open();
+        }
+    }
+
+    private static final class Job {
+        static final Job END = new Job("", null);
+
+        final String name;
+        final BufferedImage image;
+
+        Job(String name, BufferedImage image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+
+    // 命令行参数
+    public static final class Options {
+        static final String USAGE = "Usage: BatchProcessor --input <dir|file.zip> --output <dir>"
+                + " [--op <" + String.join("|", operatorIds()) + "|none>] [--strength 50] [--crop x,y,w,h]"
+                + " [--format png] [--decoders 1] [--encoders 2] [--queue 4] [--parallelism N] [--tiled]"
+                + " [--concurrency N] [--inflight-mb 512]";
+
+        Path input;
+        Path output;
+        ImageOperator operator = OperatorRegistry.get(OperatorRegistry.SOBEL);
+        int strength = 50;
+        int[] crop;
+        String format = "png";
+        int decoders = 1;
+        int encoders = 2;
+        int queueCapacity = 4;
+        int parallelism;
+        boolean tiled;
+        int concurrency = ZipBatchTransformer.DEFAULT_CONCURRENCY;
+        long inFlightBytes = ZipBatchTransformer.DEFAULT_IN_FLIGHT_BYTES;
+        // 输入与输出都是 zip 时流式写出新的压缩包
+        boolean zipOutput;
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (name.equals("--tiled")) {
+                    options.tiled = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--input" -> options.input = Paths.get(value);
+                    case "--output" -> options.output = Paths.get(value);
+                    case "--op" -> options.operator = value.equals("none") ? null : OperatorRegistry.get(value);
+                    case "--strength" -> options.strength = Integer.parseInt(value);
+                    case "--crop" -> options.crop = parseRect(value);
+                    case "--format" -> options.format = value.toLowerCase(Locale.ROOT);
+                    case "--decoders" -> options.decoders = positive(name, value);
+                    case "--encoders" -> options.encoders = positive(name, value);
+                    case "--queue" -> options.queueCapacity = positive(name, value);
+                    case "--parallelism" -> options.parallelism = positive(name, value);
+                    case "--concurrency" -> options.concurrency = positive(name, value);
+                    case "--inflight-mb" -> options.inFlightBytes = positive(name, value) * 1024L * 1024;
+                    default -> throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            if (options.input == null || options.output == null) {
+                throw new IllegalArgumentException("--input and --output are required");
+            }
+            if (options.tiled && options.crop != null) {
+                throw new IllegalArgumentException("--crop is not supported with --tiled");
+            }
+            if (options.tiled && options.operator != null && !TiledProcessor.supports(options.operator)) {
+                throw new IllegalArgumentException("--op " + options.operator.getId() + " is not supported with --tiled");
+            }
+            options.zipOutput = isZip(options.input) && isZip(options.output);
+            if (options.zipOutput && (options.tiled || options.crop != null)) {
+                throw new IllegalArgumentException("--tiled and --crop are not supported for zip output");
+            }
+            return options;
+        }
+
+        private static boolean isZip(Path path) {
+            return path.getFileName() != null
+                    && path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+        }
+
+        private static int[] parseRect(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Crop must be x,y,width,height: " + value);
+            }
+            int[] rect = new int[4];
+            for (int i = 0; i < 4; i++) {
+                rect[i] = Integer.parseInt(parts[i].trim());
+            }
+            if (rect[0] < 0 || rect[1] < 0 || rect[2] <= 0 || rect[3] <= 0) {
+                throw new IllegalArgumentException("Invalid crop area: " + value);
+            }
+            return rect;
+        }
+
+        private static int positive(String name, String value) {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1");
+            }
+            return number;
+        }
+
+        private static List<String> operatorIds() {
+            return OperatorRegistry.getAll().stream().map(ImageOperator::getId).toList();
+        }
+    }
+
+    // 吞吐量统计
+    public static final class Stats {
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder pixels = new LongAdder();
+        final LongAdder decodeNanos = new LongAdder();
+        final LongAdder processNanos = new LongAdder();
+        final LongAdder encodeNanos = new LongAdder();
+        volatile long wallNanos;
+
+        public String summary() {
+            double seconds = wallNanos / 1e9;
+            long images = completed.sum();
+            return String.format(Locale.ROOT,
+                    "Processed %d images (%d failed, %d skipped) in %.2f s%n"
+                            + "Throughput: %.2f images/s, %.2f MP/s%n"
+                            + "Stage busy time: decode %.2f s, process %.2f s, encode %.2f s",
+                    images, failed.sum(), skipped.sum(), seconds,
+                    seconds > 0 ? images / seconds : 0, seconds > 0 ? pixels.sum() / 1e6 / seconds : 0,
+                    decodeNanos.sum() / 1e9, processNanos.sum() / 1e9, encodeNanos.sum() / 1e9);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.image;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Canny 边缘检测：5x5 高斯平滑、Sobel 梯度、非极大值抑制与双阈值滞后连通。
+ * <p>
+ * 前三步按行带并行，在基本类型数组上完成；滞后连通从强边缘像素出发，用整数队列做一次广度优先遍历。
+ * 强度越大阈值越低，强度 50 时高阈值为 100，低阈值为高阈值的 40%。
+ */
+public class CannyOperator implements MultiPassOperator {
+
+    // 高斯 2 + Sobel 1 + 非极大值抑制 1
+    private static final int RADIUS = 4;
+
+    private static final int[] GAUSSIAN = {1, 4, 6, 4, 1};
+
+    // 像素状态
+    private static final byte NONE = 0;
+    private static final byte WEAK = 1;
+    private static final byte STRONG = 2;
+
+    // tan(22.5°) 与 tan(67.5°) 的定点近似（放大 1000 倍）
+    private static final int TAN_22 = 414;
+    private static final int TAN_67 = 2414;
+
+    @Override
+    public String getId() {
+        return OperatorRegistry.CANNY;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Canny";
+    }
+
+    @Override
+    public int getRadius() {
+        return RADIUS;
+    }
+
+    // 高阈值，强度越大检测出的边缘越多
+    static int highThreshold(int strength) {
+        return Math.max(1, 5000 / Math.max(1, strength));
+    }
+
+    static int lowThreshold(int strength) {
+        return Math.max(1, highThreshold(strength) * 2 / 5);
+    }
+
+    /**
+     * 行带版本只做到非极大值抑制：细化后的梯度幅值经查找表输出，不做滞后阈值。
+     * 只在行带及其光晕的窗口上重新平滑和求梯度。
+     */
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(RADIUS, rowStart);
+        int lastRow = Math.min(height - RADIUS, rowEnd);
+        if (firstRow >= lastRow || width <= 2 * RADIUS) {
+            return;
+        }
+        // 源平面按行连续存放，窗口就是其中的一段
+        int top = firstRow - RADIUS;
+        int rows = lastRow - firstRow + 2 * RADIUS;
+        byte[] window = Arrays.copyOfRange(source.getGray(), top * width, (top + rows) * width);
+        Planes planes = new Planes(width, rows);
+        planes.smoothRows(window, 0, rows);
+        planes.smoothColumns(2, rows - 2);
+        planes.gradient(3, rows - 3);
+        for (int y = firstRow; y < lastRow; y++) {
+            for (int x = RADIUS; x < width - RADIUS; x++) {
+                int i = (y - top) * width + x;
+                output[y * width + x] = EdgeLut.map(lut, planes.isMaximum(i) ? planes.magnitude[i] : 0);
+            }
+        }
+    }
+
+    @Override
+    public void process(PixelRaster source, int[] output, int strength, BooleanSupplier cancelled, IntConsumer progress) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (height <= 2 * RADIUS || width <= 2 * RADIUS) {
+            return;
+        }
+        int high = highThreshold(strength);
+        int low = lowThreshold(strength);
+        Planes planes = new Planes(width, height);
+        byte[] gray = source.getGray();
+        IntConsumer ignore = rows -> { };
+
+        // 平滑与梯度各自按行带并行，后一步读取前一步相邻行带的结果
+        ParallelBands.forEach(0, height, (rowStart, rowEnd) -> planes.smoothRows(gray, rowStart, rowEnd), cancelled, ignore);
+        ParallelBands.forEach(2, height - 2, (rowStart, rowEnd) -> planes.smoothColumns(rowStart, rowEnd), cancelled, ignore);
+        ParallelBands.forEach(3, height - 3, planes::gradient, cancelled, ignore);
+
+        // 非极大值抑制并按双阈值分类
+        byte[] state = new byte[width * height];
+        ParallelBands.forEach(RADIUS, height - RADIUS, (rowStart, rowEnd) -> {
+            for (int y = rowStart; y < rowEnd; y++) {
+                for (int x = RADIUS; x < width - RADIUS; x++) {
+                    int i = y * width + x;
+                    int magnitude = planes.magnitude[i];
+                    if (magnitude >= low && planes.isMaximum(i)) {
+                        state[i] = magnitude >= high ? STRONG : WEAK;
+                    }
+                }
+            }
+        }, cancelled, ignore);
+
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+        connect(state, width, height);
+
+        int edge = PixelRaster.grayArgb(255);
+        int background = PixelRaster.grayArgb(0);
+        ParallelBands.forEach(0, height, (rowStart, rowEnd) -> {
+            for (int y = Math.max(RADIUS, rowStart); y < Math.min(height - RADIUS, rowEnd); y++) {
+                for (int x = RADIUS; x < width - RADIUS; x++) {
+                    int i = y * width + x;
+                    output[i] = state[i] == STRONG ? edge : background;
+                }
+            }
+        }, cancelled, progress);
+    }
+
+    // 滞后连通：与强边缘 8 邻接的弱边缘提升为强边缘，队列中只存放像素下标
+    private static void connect(byte[] state, int width, int height) {
+        int[] queue = new int[1024];
+        int tail = 0;
+        for (int i = 0; i < state.length; i++) {
+            if (state[i] == STRONG) {
+                if (tail == queue.length) {
+                    queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+                queue[tail++] = i;
+            }
+        }
+        int[] neighbours = {-width - 1, -width, -width + 1, -1, 1, width - 1, width, width + 1};
+        for (int head = 0; head < tail; head++) {
+            int i = queue[head];
+            // 弱边缘只出现在算子有效范围内，邻域下标不会越界
+            for (int offset : neighbours) {
+                int j = i + offset;
+                if (state[j] == WEAK) {
+                    state[j] = STRONG;
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                    queue[tail++] = j;
+                }
+            }
+        }
+    }
+
+    // 平滑结果、梯度幅值与量化方向的中间平面
+    private static final class Planes {
+        final int width;
+        final char[] rows;
+        final byte[] smoothed;
+        final char[] magnitude;
+        // 量化后的梯度方向，作为 offsets 的下标
+        final byte[] direction;
+        // 水平、垂直、主对角线、副对角线方向上相邻像素的下标偏移
+        final int[] offsets;
+
+        Planes(int width, int height) {
+            this.width = width;
+            this.rows = new char[width * height];
+            this.smoothed = new byte[width * height];
+            this.magnitude = new char[width * height];
+            this.direction = new byte[width * height];
+            this.offsets = new int[]{1, width, width + 1, width - 1};
+        }
+
+        // 水平方向的 1-4-6-4-1 卷积，结果不超过 255 * 16
+        void smoothRows(byte[] gray, int rowStart, int rowEnd) {
+            for (int y = rowStart; y < rowEnd; y++) {
+                int row = y * width;
+                for (int x = 2; x < width - 2; x++) {
+                    int i = row + x;
+                    int sum = 0;
+                    for (int k = 0; k < 5; k++) {
+                        sum += GAUSSIAN[k] * (gray[i + k - 2] & 0xff);
+                    }
+                    rows[i] = (char) sum;
+                }
+            }
+        }
+
+        // 垂直方向的 1-4-6-4-1 卷积并归一化
+        void smoothColumns(int rowStart, int rowEnd) {
+            for (int y = rowStart; y < rowEnd; y++) {
+                int row = y * width;
+                for (int x = 2; x < width - 2; x++) {
+                    int i = row + x;
+                    int sum = 0;
+                    for (int k = 0; k < 5; k++) {
+                        sum += GAUSSIAN[k] * rows[i + (k - 2) * width];
+                    }
+                    smoothed[i] = (byte) ((sum + 128) >> 8);
+                }
+            }
+        }
+
+        // Sobel 梯度幅值，方向量化为水平、垂直与两条对角线
+        void gradient(int rowStart, int rowEnd) {
+            for (int y = rowStart; y < rowEnd; y++) {
+                int row = y * width;
+                for (int x = 3; x < width - 3; x++) {
+                    int i = row + x;
+                    int p1 = smoothed[i - width - 1] & 0xff;
+                    int p2 = smoothed[i - width] & 0xff;
+                    int p3 = smoothed[i - width + 1] & 0xff;
+                    int p4 = smoothed[i - 1] & 0xff;
+                    int p6 = smoothed[i + 1] & 0xff;
+                    int p7 = smoothed[i + width - 1] & 0xff;
+                    int p8 = smoothed[i + width] & 0xff;
+                    int p9 = smoothed[i + width + 1] & 0xff;
+                    int gx = (p3 + 2 * p6 + p9) - (p1 + 2 * p4 + p7);
+                    int gy = (p7 + 2 * p8 + p9) - (p1 + 2 * p2 + p3);
+                    magnitude[i] = (char) Math.sqrt((double) gx * gx + (double) gy * gy);
+
+                    int ax = Math.abs(gx);
+                    int ay = Math.abs(gy);
+                    if (ay * 1000 <= ax * TAN_22) {
+                        direction[i] = 0;
+                    } else if (ay * 1000 >= ax * TAN_67) {
+                        direction[i] = 1;
+                    } else {
+                        // 图像坐标 y 轴向下，gx 与 gy 同号时梯度沿主对角线
+                        direction[i] = (byte) ((gx ^ gy) >= 0 ? 2 : 3);
+                    }
+                }
+            }
+        }
+
+        // 沿梯度方向是否为局部最大值，相等时只保留前一个像素以免边缘加粗
+        boolean isMaximum(int i) {
+            int m = magnitude[i];
+            int offset = offsets[direction[i]];
+            return m > 0 && m > magnitude[i - offset] && m >= magnitude[i + offset];
+        }
+    }
+}
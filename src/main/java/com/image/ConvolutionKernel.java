@@ -0,0 +1,136 @@
+package com.image;
+
+import java.util.Arrays;
+
+/**
+ * 奇数尺寸的方形整数卷积核，权重按行存储：{@code weights[dy * size + dx]}。
+ * <p>
+ * 构造时检测核是否可分离（秩为 1，即 K = column<sup>T</sup> · row），
+ * 可分离的核可以用两次一维卷积代替二维卷积，每像素代价由 O(k²) 降为 O(k)。
+ */
+public final class ConvolutionKernel {
+
+    private final int size;
+    private final int[] weights;
+    private final int[] rowFactor;
+    private final int[] columnFactor;
+
+    private ConvolutionKernel(int size, int[] weights) {
+        this.size = size;
+        this.weights = weights;
+
+        int[][] factors = factorize(size, weights);
+        this.columnFactor = factors == null ? null : factors[0];
+        this.rowFactor = factors == null ? null : factors[1];
+    }
+
+    // 由按行排列的权重创建卷积核
+    public static ConvolutionKernel of(int size, int... weights) {
+        if (size < 1 || size % 2 == 0) {
+            throw new IllegalArgumentException("Kernel size must be odd: " + size);
+        }
+        if (weights.length != size * size) {
+            throw new IllegalArgumentException("Expected " + size * size + " weights but got " + weights.length);
+        }
+        return new ConvolutionKernel(size, weights.clone());
+    }
+
+    // 由两个一维核的外积创建卷积核：weights[dy][dx] = column[dy] * row[dx]
+    public static ConvolutionKernel separable(int[] column, int[] row) {
+        if (column.length != row.length) {
+            throw new IllegalArgumentException("Factors must have the same length");
+        }
+        int size = row.length;
+        int[] weights = new int[size * size];
+        for (int dy = 0; dy < size; dy++) {
+            for (int dx = 0; dx < size; dx++) {
+                weights[dy * size + dx] = column[dy] * row[dx];
+            }
+        }
+        return of(size, weights);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getRadius() {
+        return size / 2;
+    }
+
+    public int getWeight(int dx, int dy) {
+        return weights[dy * size + dx];
+    }
+
+    public boolean isSeparable() {
+        return rowFactor != null;
+    }
+
+    // 水平方向的一维因子（按 dx），不可分离时为 null
+    public int[] getRowFactor() {
+        return rowFactor == null ? null : rowFactor.clone();
+    }
+
+    // 垂直方向的一维因子（按 dy），不可分离时为 null
+    public int[] getColumnFactor() {
+        return columnFactor == null ? null : columnFactor.clone();
+    }
+
+    // 秩 1 整数分解：以第一行非零行约去公因数作为行因子，再逐行求整数倍数
+    private static int[][] factorize(int size, int[] weights) {
+        int pivotRow = -1;
+        for (int dy = 0; dy < size && pivotRow < 0; dy++) {
+            for (int dx = 0; dx < size; dx++) {
+                if (weights[dy * size + dx] != 0) {
+                    pivotRow = dy;
+                    break;
+                }
+            }
+        }
+        if (pivotRow < 0) {
+            return null;
+        }
+
+        int divisor = 0;
+        for (int dx = 0; dx < size; dx++) {
+            divisor = gcd(divisor, Math.abs(weights[pivotRow * size + dx]));
+        }
+        int[] row = new int[size];
+        int pivotColumn = -1;
+        for (int dx = 0; dx < size; dx++) {
+            row[dx] = weights[pivotRow * size + dx] / divisor;
+            if (pivotColumn < 0 && row[dx] != 0) {
+                pivotColumn = dx;
+            }
+        }
+
+        int[] column = new int[size];
+        for (int dy = 0; dy < size; dy++) {
+            int value = weights[dy * size + pivotColumn];
+            if (value % row[pivotColumn] != 0) {
+                return null;
+            }
+            column[dy] = value / row[pivotColumn];
+            for (int dx = 0; dx < size; dx++) {
+                if (weights[dy * size + dx] != column[dy] * row[dx]) {
+                    return null;
+                }
+            }
+        }
+        return new int[][]{column, row};
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return "ConvolutionKernel" + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,253 @@
+package com.image;
+
+/**
+ * 基于 {@link ConvolutionKernel} 的通用卷积算子。
+ * <p>
+ * 单个核时幅值为 |K * I| / divisor；一对梯度核时幅值为 sqrt(Gx² + Gy²) / divisor。
+ * 若所有核都可分离，则先做水平一维卷积并把结果保存在 k 行的滚动缓冲中，再做垂直一维卷积；
+ * 否则按非零权重逐点累加。两条路径均为整数运算，结果完全一致。
+ */
+public class ConvolutionOperator implements ImageOperator {
+
+    private final String id;
+    private final String displayName;
+    private final ConvolutionKernel[] kernels;
+    private final int divisor;
+    private final int size;
+    private final int radius;
+    private final boolean separable;
+    // 可分离时各核的垂直因子，以及水平因子的非零抽头位置与权重
+    private final int[][] columnFactors;
+    private final int[][] rowTaps;
+    private final int[][] rowWeights;
+
+    // 单核算子，例如拉普拉斯或高斯模糊
+    public ConvolutionOperator(String id, String displayName, ConvolutionKernel kernel, int divisor) {
+        this(id, displayName, new ConvolutionKernel[]{kernel}, divisor);
+    }
+
+    // 梯度核对算子，例如 Sobel 或 Scharr
+    public ConvolutionOperator(String id, String displayName, ConvolutionKernel kernelX, ConvolutionKernel kernelY) {
+        this(id, displayName, kernelX, kernelY, 1);
+    }
+
+    // 带归一化除数的梯度核对算子，用于权重之和较大的核
+    public ConvolutionOperator(String id, String displayName, ConvolutionKernel kernelX, ConvolutionKernel kernelY, int divisor) {
+        this(id, displayName, new ConvolutionKernel[]{kernelX, kernelY}, divisor);
+    }
+
+    private ConvolutionOperator(String id, String displayName, ConvolutionKernel[] kernels, int divisor) {
+        if (divisor < 1) {
+            throw new IllegalArgumentException("Divisor must be positive: " + divisor);
+        }
+        boolean allSeparable = true;
+        for (ConvolutionKernel kernel : kernels) {
+            if (kernel.getSize() != kernels[0].getSize()) {
+                throw new IllegalArgumentException("Kernels must have the same size");
+            }
+            allSeparable &= kernel.isSeparable();
+        }
+        this.id = id;
+        this.displayName = displayName;
+        this.kernels = kernels;
+        this.divisor = divisor;
+        this.size = kernels[0].getSize();
+        this.radius = kernels[0].getRadius();
+        this.separable = allSeparable;
+
+        this.columnFactors = new int[kernels.length][];
+        this.rowTaps = new int[kernels.length][];
+        this.rowWeights = new int[kernels.length][];
+        if (allSeparable) {
+            for (int k = 0; k < kernels.length; k++) {
+                columnFactors[k] = kernels[k].getColumnFactor();
+                int[] row = kernels[k].getRowFactor();
+                int taps = 0;
+                for (int weight : row) {
+                    if (weight != 0) {
+                        taps++;
+                    }
+                }
+                rowTaps[k] = new int[taps];
+                rowWeights[k] = new int[taps];
+                int t = 0;
+                for (int dx = 0; dx < size; dx++) {
+                    if (row[dx] != 0) {
+                        rowTaps[k][t] = dx;
+                        rowWeights[k][t++] = row[dx];
+                    }
+                }
+            }
+        }
+    }
+
+    // 3x3 拉普拉斯算子
+    public static ConvolutionOperator laplacian() {
+        return new ConvolutionOperator(OperatorRegistry.LAPLACIAN, "Laplacian",
+                ConvolutionKernel.of(3,
+                        0, 1, 0,
+                        1, -4, 1,
+                        0, 1, 0), 1);
+    }
+
+    // 3x3 Sobel 算子
+    public static ConvolutionOperator sobel() {
+        return new ConvolutionOperator(OperatorRegistry.SOBEL, "Sobel",
+                ConvolutionKernel.separable(new int[]{-1, 0, 1}, new int[]{1, 2, 1}),
+                ConvolutionKernel.separable(new int[]{1, 2, 1}, new int[]{-1, 0, 1}));
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public int getRadius() {
+        return radius;
+    }
+
+    public boolean isSeparable() {
+        return separable;
+    }
+
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(radius, rowStart);
+        int lastRow = Math.min(height - radius, rowEnd);
+        if (firstRow >= lastRow || width <= 2 * radius) {
+            return;
+        }
+        if (separable) {
+            applySeparable(source, output, firstRow, lastRow, lut);
+        } else {
+            applyDirect(source, output, firstRow, lastRow, lut);
+        }
+    }
+
+    // 二维直接卷积：只累加非零权重
+    private void applyDirect(PixelRaster source, int[] output, int firstRow, int lastRow, int[] lut) {
+        int width = source.getWidth();
+        byte[] gray = source.getGray();
+        boolean pair = kernels.length == 2;
+
+        int[][] offsets = new int[kernels.length][];
+        int[][] weights = new int[kernels.length][];
+        for (int k = 0; k < kernels.length; k++) {
+            int taps = 0;
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    if (kernels[k].getWeight(dx, dy) != 0) {
+                        taps++;
+                    }
+                }
+            }
+            offsets[k] = new int[taps];
+            weights[k] = new int[taps];
+            int t = 0;
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    int weight = kernels[k].getWeight(dx, dy);
+                    if (weight != 0) {
+                        offsets[k][t] = (dy - radius) * width + (dx - radius);
+                        weights[k][t++] = weight;
+                    }
+                }
+            }
+        }
+        int[] offsetsX = offsets[0];
+        int[] weightsX = weights[0];
+        int[] offsetsY = pair ? offsets[1] : null;
+        int[] weightsY = pair ? weights[1] : null;
+
+        for (int y = firstRow; y < lastRow; y++) {
+            int row = y * width;
+            for (int x = radius; x < width - radius; x++) {
+                int i = row + x;
+                int gx = 0;
+                for (int t = 0; t < offsetsX.length; t++) {
+                    gx += weightsX[t] * (gray[i + offsetsX[t]] & 0xff);
+                }
+                int gy = 0;
+                if (pair) {
+                    for (int t = 0; t < offsetsY.length; t++) {
+                        gy += weightsY[t] * (gray[i + offsetsY[t]] & 0xff);
+                    }
+                }
+                output[i] = EdgeLut.map(lut, magnitude(gx, gy, pair));
+            }
+        }
+    }
+
+    // 可分离卷积：水平一维卷积结果写入 k 行滚动缓冲，再沿垂直方向合成
+    private void applySeparable(PixelRaster source, int[] output, int firstRow, int lastRow, int[] lut) {
+        int width = source.getWidth();
+        boolean pair = kernels.length == 2;
+
+        int[][][] rings = new int[kernels.length][size][width];
+        int[] columnX = columnFactors[0];
+        int[] columnY = pair ? columnFactors[1] : null;
+
+        // 预填充第一个输出行上方与自身所需的源行
+        for (int sy = firstRow - radius; sy < firstRow + radius; sy++) {
+            horizontalPass(source, sy, rings, sy % size);
+        }
+
+        // 当前输出行对应的 k 个缓冲行，按 dy 排列
+        int[][] windowX = new int[size][];
+        int[][] windowY = new int[size][];
+        for (int y = firstRow; y < lastRow; y++) {
+            horizontalPass(source, y + radius, rings, (y + radius) % size);
+            for (int j = 0; j < size; j++) {
+                int slot = (y - radius + j) % size;
+                windowX[j] = rings[0][slot];
+                windowY[j] = pair ? rings[1][slot] : null;
+            }
+            int row = y * width;
+            for (int x = radius; x < width - radius; x++) {
+                int gx = 0;
+                int gy = 0;
+                for (int j = 0; j < size; j++) {
+                    gx += columnX[j] * windowX[j][x];
+                    if (pair) {
+                        gy += columnY[j] * windowY[j][x];
+                    }
+                }
+                output[row + x] = EdgeLut.map(lut, magnitude(gx, gy, pair));
+            }
+        }
+    }
+
+    // 对源行 sourceRow 做水平一维卷积，写入每个核滚动缓冲的 slot 行
+    private void horizontalPass(PixelRaster source, int sourceRow, int[][][] rings, int slot) {
+        int width = source.getWidth();
+        byte[] gray = source.getGray();
+        int base = sourceRow * width - radius;
+        for (int k = 0; k < kernels.length; k++) {
+            int[] taps = rowTaps[k];
+            int[] weights = rowWeights[k];
+            int[] target = rings[k][slot];
+            for (int x = radius; x < width - radius; x++) {
+                int sum = 0;
+                for (int t = 0; t < taps.length; t++) {
+                    sum += weights[t] * (gray[base + x + taps[t]] & 0xff);
+                }
+                target[x] = sum;
+            }
+        }
+    }
+
+    private int magnitude(int gx, int gy, boolean pair) {
+        if (pair) {
+            return (int) (Math.sqrt((double) gx * gx + (double) gy * gy) / divisor);
+        }
+        return Math.abs(gx) / divisor;
+    }
+}
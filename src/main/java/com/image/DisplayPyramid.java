@@ -0,0 +1,132 @@
+package com.image;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用于显示的图像金字塔：第 0 层为原图，之后每层宽高减半（2x2 平均）。
+ * <p>
+ * 显示时只需上传与视图尺寸最接近的一层，处理仍使用原图。
+ * 层级在共享线程池中生成，生成前只有第 0 层可用。
+ */
+public final class DisplayPyramid {
+
+    // 最小一层的长边不小于该值
+    private static final int MIN_LEVEL_SIZE = 256;
+
+    private final Image source;
+    private volatile List<Image> levels;
+
+    private DisplayPyramid(Image source) {
+        this.source = source;
+        this.levels = List.of(source);
+    }
+
+    /**
+     * 为 source 创建金字塔并在后台生成各层，完成后在 FX 线程上调用 onReady。
+     * 图像较小不需要缩小层时不会提交后台任务，也不会回调。
+     */
+    public static DisplayPyramid build(Image source, Runnable onReady) {
+        DisplayPyramid pyramid = new DisplayPyramid(source);
+        if (Math.max(source.getWidth(), source.getHeight()) >= MIN_LEVEL_SIZE * 2) {
+            ImageExecutors.shared().execute(() -> {
+                ImageMetrics.Timer timer = ImageMetrics.start("pyramid");
+                pyramid.levels = pyramid.buildLevels();
+                timer.stop((long) source.getWidth() * (long) source.getHeight());
+                Platform.runLater(onReady);
+            });
+        }
+        return pyramid;
+    }
+
+    public Image getSource() {
+        return source;
+    }
+
+    // 由大到小排列的各层，第 0 层为原图
+    public List<Image> getLevels() {
+        return levels;
+    }
+
+    private List<Image> buildLevels() {
+        List<Image> result = new ArrayList<>();
+        result.add(source);
+        int width = (int) source.getWidth();
+        int height = (int) source.getHeight();
+        int[] pixels = halveSource(width, height);
+        width = (width + 1) / 2;
+        height = (height + 1) / 2;
+        while (true) {
+            result.add(toImage(pixels, width, height));
+            if (Math.max(width, height) < MIN_LEVEL_SIZE * 2) {
+                return List.copyOf(result);
+            }
+            pixels = halve(pixels, width, height);
+            width = (width + 1) / 2;
+            height = (height + 1) / 2;
+        }
+    }
+
+    // 第一层直接按行对读取原图，不生成原图的整图副本
+    private int[] halveSource(int width, int height) {
+        int halfWidth = (width + 1) / 2;
+        int halfHeight = (height + 1) / 2;
+        int[] half = new int[halfWidth * halfHeight];
+        int[] rows = new int[width * 2];
+        PixelSurface surface = PixelSurface.of(source);
+        PixelReader reader = source.getPixelReader();
+        for (int y = 0; y < halfHeight; y++) {
+            int sourceY = y * 2;
+            int rowCount = Math.min(2, height - sourceY);
+            if (surface != null) {
+                System.arraycopy(surface.getPixels(), sourceY * width, rows, 0, rowCount * width);
+            } else {
+                reader.getPixels(0, sourceY, width, rowCount, PixelFormat.getIntArgbPreInstance(), rows, 0, width);
+            }
+            averageRow(rows, 0, rowCount == 2 ? width : 0, width, half, y * halfWidth, halfWidth);
+        }
+        return half;
+    }
+
+    private static int[] halve(int[] pixels, int width, int height) {
+        int halfWidth = (width + 1) / 2;
+        int halfHeight = (height + 1) / 2;
+        int[] half = new int[halfWidth * halfHeight];
+        for (int y = 0; y < halfHeight; y++) {
+            int top = y * 2 * width;
+            int bottom = Math.min(y * 2 + 1, height - 1) * width;
+            averageRow(pixels, top, bottom, width, half, y * halfWidth, halfWidth);
+        }
+        return half;
+    }
+
+    // 将两行像素按 2x2 平均为一行，奇数宽度时最后一列与自身平均；像素为预乘格式，各通道可直接平均
+    private static void averageRow(int[] pixels, int top, int bottom, int width, int[] out, int outOffset, int outWidth) {
+        for (int x = 0; x < outWidth; x++) {
+            int left = x * 2;
+            int right = Math.min(left + 1, width - 1);
+            int a = pixels[top + left];
+            int b = pixels[top + right];
+            int c = pixels[bottom + left];
+            int d = pixels[bottom + right];
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int sum = ((a >>> shift) & 0xff) + ((b >>> shift) & 0xff) + ((c >>> shift) & 0xff) + ((d >>> shift) & 0xff);
+                value |= ((sum + 2) >> 2) << shift;
+            }
+            out[outOffset + x] = value;
+        }
+    }
+
+    private static Image toImage(int[] pixels, int width, int height) {
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return image;
+    }
+}
@@ -1,112 +1,132 @@
 package com.image;
 
 import javafx.concurrent.Task;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
 public class EdgeDetectionTask extends Task<Image> {
 
-    private BufferedImage bufferedImage;
-    private String method;
+    private Image image;
+    private ImageOperator operator;
     private int strength;
+    private Rectangle2D region;
 
-    public EdgeDetectionTask(BufferedImage bufferedImage, String method, int strength) {
-        this.bufferedImage = bufferedImage;
-        this.method = method;
+    public EdgeDetectionTask(Image image, ImageOperator operator, int strength) {
+        this(image, operator, strength, null);
+    }
+
+    // region 为 null 时处理整幅图像，否则只计算该区域，区域外保留原图像素
+    public EdgeDetectionTask(Image image, ImageOperator operator, int strength, Rectangle2D region) {
+        this.image = image;
+        this.operator = operator;
         this.strength = strength;
+        this.region = region;
     }
 
+    // 相同内容、算子与参数的结果直接取自 ResultCache，否则计算并以算子 id 记录耗时
     @Override
     protected Image call() throws Exception {
-        BufferedImage resultImage = null;
-
-        switch (method) {
-            case "roberts":
-                resultImage = robertsCross(bufferedImage, strength);
-                break;
-            case "laplacian":
-                resultImage = laplacian(bufferedImage, strength);
-                break;
-            case "sobel":
-                resultImage = sobel(bufferedImage, strength);
-                break;
+        long pixels = region != null ? (long) region.getWidth() * (long) region.getHeight()
+                : (long) image.getWidth() * (long) image.getHeight();
+        ResultCache results = ResultCache.shared();
+        ResultCache.Key key = results.keyFor(image, operator, strength, region, this::isCancelled);
+        Image cached = results.get(key);
+        if (cached != null) {
+            ImageMetrics.start("result-cache.hit").stop(pixels);
+            updateProgress(1, 1);
+            return cached;
         }
-
-        return SwingFXUtils.toFXImage(resultImage, null);
+        ImageMetrics.Timer timer = ImageMetrics.start(operator.getId());
+        Image result = region != null ? detectRegion() : detectFull();
+        timer.stop(pixels);
+        results.put(key, result);
+        return result;
     }
 
-    private BufferedImage robertsCross(BufferedImage image, int strength) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage edgeImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-
-        for (int y = 0; y < height - 1; y++) {
-            for (int x = 0; x < width - 1; x++) {
-                int p1 = image.getRGB(x, y) & 0xff;
-                int p2 = image.getRGB(x + 1, y + 1) & 0xff;
-                int p3 = image.getRGB(x + 1, y) & 0xff;
-                int p4 = image.getRGB(x, y + 1) & 0xff;
-
-                int edge = Math.abs(p1 - p2) + Math.abs(p3 - p4);
-                edge = Math.min(255, edge * strength / 50);
-                edgeImage.setRGB(x, y, new java.awt.Color(edge, edge, edge).getRGB());
-            }
-        }
-        return edgeImage;
+    // 直接读取源图像像素，结果写入新的 PixelSurface，全程不经过 SwingFXUtils
+    private Image detectFull() {
+        // 亮度与幅值平面按图像缓存，同一图像只改变强度时只需重映射
+        ImageAnalysisCache cache = ImageAnalysisCache.shared();
+        PixelRaster source = cache.luminance(image);
+        PixelSurface target = PixelSurface.create(source.getWidth(), source.getHeight());
+        cache.render(source, operator, strength, target.getPixels(), this::isCancelled, progress(source.getHeight()));
+        return target.getImage();
     }
 
-    private BufferedImage sobel(BufferedImage image, int strength) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage edgeImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-
-        int[][] sobelX = {{-1, 0, 1}, {-2, 0, 2}, {-1, 0, 1}};
-        int[][] sobelY = {{-1, -2, -1}, {0, 0, 0}, {1, 2, 1}};
-
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                int gx = 0, gy = 0;
-
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                        int pixel = image.getRGB(x + i, y + j) & 0xff;
-                        gx += pixel * sobelX[i + 1][j + 1];
-                        gy += pixel * sobelY[i + 1][j + 1];
-                    }
-                }
-
-                int edge = Math.min(255, (int) Math.sqrt(gx * gx + gy * gy) * strength / 50);
-                edgeImage.setRGB(x, y, new java.awt.Color(edge, edge, edge).getRGB());
-            }
+    // 只读取区域及其光晕并在其上计算，计算量与区域面积成正比
+    private Image detectRegion() {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int x = (int) region.getMinX();
+        int y = (int) region.getMinY();
+        int regionWidth = Math.min((int) region.getWidth(), width - x);
+        int regionHeight = Math.min((int) region.getHeight(), height - y);
+
+        // 光晕按算子半径向外扩展，超出图像的部分按整图处理时的边界规则保持未计算
+        int halo = operator.getRadius();
+        int haloX = Math.max(0, x - halo);
+        int haloY = Math.max(0, y - halo);
+        int haloWidth = Math.min(width, x + regionWidth + halo) - haloX;
+        int haloHeight = Math.min(height, y + regionHeight + halo) - haloY;
+
+        PixelRaster source = PixelRaster.of(image, haloX, haloY, haloWidth, haloHeight);
+        int[] edges = new int[haloWidth * haloHeight];
+        detect(source, operator, strength, edges, this::isCancelled, progress(haloHeight));
+
+        // 区域外保留原图，区域内逐行写入计算结果
+        PixelSurface target = PixelSurface.create(width, height);
+        int[] pixels = target.getPixels();
+        PixelSurface original = PixelSurface.of(image);
+        if (original != null) {
+            System.arraycopy(original.getPixels(), 0, pixels, 0, pixels.length);
+        } else {
+            image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        }
+        for (int row = 0; row < regionHeight; row++) {
+            System.arraycopy(edges, (y - haloY + row) * haloWidth + (x - haloX),
+                    pixels, (y + row) * width + x, regionWidth);
         }
-        return edgeImage;
+        return target.getImage();
     }
 
-    private BufferedImage laplacian(BufferedImage image, int strength) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage edgeImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-
-        int[][] laplacianKernel = {{0, 1, 0}, {1, -4, 1}, {0, 1, 0}};
-
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                int sum = 0;
+    // 按已完成的行数更新任务进度
+    private IntConsumer progress(int totalRows) {
+        AtomicLong done = new AtomicLong();
+        return rows -> updateProgress(done.addAndGet(rows), totalRows);
+    }
 
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                        int pixel = image.getRGB(x + i, y + j) & 0xff;
-                        sum += pixel * laplacianKernel[i + 1][j + 1];
-                    }
-                }
+    // 对整幅图像应用算子，按行带并行计算，各行带只写自己的输出行
+    public static void detect(PixelRaster source, ImageOperator operator, int strength, int[] output) {
+        detect(source, operator, strength, output, () -> false, rows -> { });
+    }
 
-                int edge = Math.min(255, Math.abs(sum) * strength / 50);
-                edgeImage.setRGB(x, y, new java.awt.Color(edge, edge, edge).getRGB());
-            }
+    /**
+     * 可取消的版本：每个行带开始前检查 cancelled，完成后以行数调用 progress。
+     *
+     * @throws java.util.concurrent.CancellationException 若计算被取消
+     */
+    public static void detect(PixelRaster source, ImageOperator operator, int strength, int[] output,
+                              BooleanSupplier cancelled, IntConsumer progress) {
+        if (operator instanceof MultiPassOperator multiPass) {
+            multiPass.process(source, output, strength, cancelled, progress);
+            return;
         }
-        return edgeImage;
+        int[] lut = EdgeLut.forStrength(strength);
+        ParallelBands.forEach(0, source.getHeight(),
+                (rowStart, rowEnd) -> operator.apply(source, output, rowStart, rowEnd, lut), cancelled, progress);
     }
-}
 
+    // AWT 版本，供无界面的批处理使用
+    public static BufferedImage detect(BufferedImage image, ImageOperator operator, int strength) {
+        PixelRaster source = PixelRaster.of(image);
+        BufferedImage resultImage = PixelRaster.createArgbImage(source.getWidth(), source.getHeight());
+        detect(source, operator, strength, PixelRaster.pixelsOf(resultImage));
+        return resultImage;
+    }
+}
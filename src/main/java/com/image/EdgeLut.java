@@ -0,0 +1,50 @@
+package com.image;
+
+/**
+ * 幅值到输出像素的查找表，替代逐像素的 {@code Math.min(255, edge * strength / 50)} 与打包运算。
+ * <p>
+ * 表长恰好覆盖到输出饱和为 255 的幅值，更大的幅值通过 {@link #map(int[], int)} 钳制到表尾。
+ */
+public final class EdgeLut {
+
+    // 任意强度（>= 1）下仍需区分的最大幅值，更大的幅值输出都是 255
+    public static final int MAX_MAGNITUDE = 255 * 50;
+
+    // 原始幅值表：输出 min(幅值, MAX_MAGNITUDE) + 1，0 保留给算子未写入的边界像素
+    private static final int[] RAW = new int[MAX_MAGNITUDE + 1];
+
+    static {
+        for (int i = 0; i < RAW.length; i++) {
+            RAW[i] = i + 1;
+        }
+    }
+
+    private EdgeLut() {
+    }
+
+    // 把算子输出变为原始幅值（加 1）的查找表，配合 remap 使用
+    public static int[] raw() {
+        return RAW;
+    }
+
+    // 生成指定强度的映射表
+    public static int[] forStrength(int strength) {
+        // 幅值达到 ceil(255 * 50 / strength) 后输出恒为 255
+        int length = strength > 0 ? (255 * 50 + strength - 1) / strength + 1 : 1;
+        int[] lut = new int[length];
+        for (int i = 0; i < length; i++) {
+            lut[i] = PixelRaster.grayArgb(Math.min(255, i * strength / 50));
+        }
+        return lut;
+    }
+
+    // 查表，超出表长的幅值取表尾
+    public static int map(int[] lut, int magnitude) {
+        return lut[Math.min(magnitude, lut.length - 1)];
+    }
+
+    // 将 raw() 表产生的值映射为输出像素，结果与直接用 lut 运行算子一致
+    public static int remap(int[] lut, int raw) {
+        return raw == 0 ? 0 : map(lut, raw - 1);
+    }
+}
@@ -0,0 +1,288 @@
+package com.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 由多个阶段组成的滤波流水线，例如 去噪模糊 → 梯度 → 阈值。
+ * <p>
+ * 所有阶段在一次遍历中融合执行：每个模板阶段的输出只保存在与下一阶段模板高度相同的滚动行缓冲中，
+ * 逐像素阶段直接作用于其前一阶段刚计算出的行，整条流水线只有最终结果写入完整的输出数组。
+ * 每个模板阶段的幅值规则与 {@link ConvolutionOperator} 相同，因此单阶段流水线与对应算子的结果一致。
+ * 流水线本身也是一个 {@link ImageOperator}，半径为各模板阶段半径之和，可注册并按行带并行执行。
+ */
+public final class FilterPipeline implements ImageOperator {
+
+    private final String id;
+    private final String displayName;
+    private final Level[] levels;
+    private final int radius;
+
+    private FilterPipeline(String id, String displayName, Level[] levels) {
+        this.id = id;
+        this.displayName = displayName;
+        this.levels = levels;
+        int total = 0;
+        for (Level level : levels) {
+            total += level.radius;
+        }
+        this.radius = total;
+    }
+
+    // 按顺序组合各阶段，至少需要一个阶段
+    public static FilterPipeline of(String id, String displayName, Stage... stages) {
+        if (stages.length == 0) {
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        }
+        // 每个模板阶段与其后连续的逐像素阶段合并为一层；开头的逐像素阶段挂在半径为 0 的恒等模板上
+        List<Level> levels = new ArrayList<>();
+        Stage stencil = stages[0].isPointwise() ? Stage.IDENTITY : null;
+        IntUnaryOperator point = null;
+        for (Stage stage : stages) {
+            if (stage.isPointwise()) {
+                point = point == null ? stage.point : point.andThen(stage.point);
+                continue;
+            }
+            if (stencil != null) {
+                levels.add(new Level(stencil, point));
+            }
+            stencil = stage;
+            point = null;
+        }
+        levels.add(new Level(stencil, point));
+        return new FilterPipeline(id, displayName, levels.toArray(new Level[0]));
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public int getRadius() {
+        return radius;
+    }
+
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(radius, rowStart);
+        int lastRow = Math.min(height - radius, rowEnd);
+        if (firstRow >= lastRow || width <= 2 * radius) {
+            return;
+        }
+        new Pass(source, width).run(output, firstRow, lastRow, lut);
+    }
+
+    // 流水线中的一个阶段
+    public static final class Stage {
+
+        // 半径为 0 的恒等模板，用于承载位于开头的逐像素阶段
+        private static final Stage IDENTITY = new Stage(new ConvolutionKernel[]{ConvolutionKernel.of(1, 1)}, 1, null);
+
+        private final ConvolutionKernel[] kernels;
+        private final int divisor;
+        private final IntUnaryOperator point;
+
+        private Stage(ConvolutionKernel[] kernels, int divisor, IntUnaryOperator point) {
+            if (kernels != null && divisor < 1) {
+                throw new IllegalArgumentException("Divisor must be positive: " + divisor);
+            }
+            this.kernels = kernels;
+            this.divisor = divisor;
+            this.point = point;
+        }
+
+        // 单核模板：|K * I| / divisor，例如高斯模糊或拉普拉斯
+        public static Stage convolve(ConvolutionKernel kernel, int divisor) {
+            return new Stage(new ConvolutionKernel[]{kernel}, divisor, null);
+        }
+
+        // 梯度核对：sqrt(Gx² + Gy²) / divisor，例如 Sobel
+        public static Stage gradient(ConvolutionKernel kernelX, ConvolutionKernel kernelY, int divisor) {
+            if (kernelX.getSize() != kernelY.getSize()) {
+                throw new IllegalArgumentException("Kernels must have the same size");
+            }
+            return new Stage(new ConvolutionKernel[]{kernelX, kernelY}, divisor, null);
+        }
+
+        // 二值化：不小于 threshold 的值变为 255，其余为 0
+        public static Stage threshold(int threshold) {
+            return map(value -> value >= threshold ? 255 : 0);
+        }
+
+        // 任意逐像素映射
+        public static Stage map(IntUnaryOperator function) {
+            return new Stage(null, 0, function);
+        }
+
+        boolean isPointwise() {
+            return kernels == null;
+        }
+    }
+
+    // 融合后的一层：一个模板加上其后的逐像素映射，非零权重按抽头展开
+    private static final class Level {
+        final int radius;
+        final int divisor;
+        final boolean pair;
+        final int[] tapX;
+        final int[] tapY;
+        final int[] weightX;
+        final int[] weightY;
+        final IntUnaryOperator point;
+
+        Level(Stage stage, IntUnaryOperator point) {
+            ConvolutionKernel first = stage.kernels[0];
+            int size = first.getSize();
+            this.radius = first.getRadius();
+            this.divisor = stage.divisor;
+            this.pair = stage.kernels.length == 2;
+            this.point = point;
+
+            int taps = 0;
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    if (first.getWeight(dx, dy) != 0 || (pair && stage.kernels[1].getWeight(dx, dy) != 0)) {
+                        taps++;
+                    }
+                }
+            }
+            tapX = new int[taps];
+            tapY = new int[taps];
+            weightX = new int[taps];
+            weightY = new int[taps];
+            int t = 0;
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    int wx = first.getWeight(dx, dy);
+                    int wy = pair ? stage.kernels[1].getWeight(dx, dy) : 0;
+                    if (wx != 0 || wy != 0) {
+                        tapX[t] = dx - radius;
+                        tapY[t] = dy - radius;
+                        weightX[t] = wx;
+                        weightY[t++] = wy;
+                    }
+                }
+            }
+        }
+
+        int magnitude(int gx, int gy) {
+            int value = pair ? (int) (Math.sqrt((double) gx * gx + (double) gy * gy) / divisor) : Math.abs(gx) / divisor;
+            return point == null ? value : point.applyAsInt(value);
+        }
+    }
+
+    /**
+     * 一次行带计算的状态。第 i 层的输出行保存在 rings[i + 1] 中，rings[0] 保存转换为 int 的源行；
+     * 每个缓冲的行数为下一层模板的高度，行 y 位于第 y % 行数 行。
+     * 各层按需逐行推进，任何时刻每层最多领先下一层其模板半径行，因此缓冲不会被提前覆盖。
+     */
+    private final class Pass {
+        private final PixelRaster source;
+        private final int width;
+        private final int[][] rings;
+        private final int[] ringRows;
+        private final int[] nextRow;
+        private final int[] rowOffsets;
+        private final int[] lastRow;
+
+        Pass(PixelRaster source, int width) {
+            this.source = source;
+            this.width = width;
+            int count = levels.length;
+            rings = new int[count + 1][];
+            ringRows = new int[count + 1];
+            nextRow = new int[count + 1];
+            int maxTaps = 0;
+            for (int i = 0; i < count; i++) {
+                ringRows[i] = 2 * levels[i].radius + 1;
+                rings[i] = new int[ringRows[i] * width];
+                maxTaps = Math.max(maxTaps, levels[i].tapX.length);
+            }
+            // 最后一层直接映射到输出，只需一行缓冲
+            ringRows[count] = 1;
+            rings[count] = new int[width];
+            rowOffsets = new int[maxTaps];
+            lastRow = rings[count];
+        }
+
+        void run(int[] output, int firstRow, int lastRowExclusive, int[] lut) {
+            int count = levels.length;
+            // 第 i 层（源为 -1）需要从 firstRow - (radius - 已累计半径) 开始
+            int reach = radius;
+            nextRow[0] = firstRow - reach;
+            for (int i = 0; i < count; i++) {
+                reach -= levels[i].radius;
+                nextRow[i + 1] = firstRow - reach;
+            }
+            int border = radius;
+            for (int y = firstRow; y < lastRowExclusive; y++) {
+                advance(count, y);
+                int offset = y * width;
+                for (int x = border; x < width - border; x++) {
+                    output[offset + x] = EdgeLut.map(lut, Math.max(0, lastRow[x]));
+                }
+            }
+        }
+
+        // 将第 stage 个缓冲推进到包含行 y（stage 0 为源行）
+        private void advance(int stage, int y) {
+            while (nextRow[stage] <= y) {
+                int row = nextRow[stage]++;
+                if (stage == 0) {
+                    copySourceRow(row);
+                } else {
+                    Level level = levels[stage - 1];
+                    advance(stage - 1, row + level.radius);
+                    computeRow(stage, level, row);
+                }
+            }
+        }
+
+        private void copySourceRow(int row) {
+            byte[] gray = source.getGray();
+            int[] ring = rings[0];
+            int target = (row % ringRows[0]) * width;
+            int from = row * width;
+            for (int x = 0; x < width; x++) {
+                ring[target + x] = gray[from + x] & 0xff;
+            }
+        }
+
+        // 计算第 stage - 1 层的行 row，只覆盖该层有效的列
+        private void computeRow(int stage, Level level, int row) {
+            int[] input = rings[stage - 1];
+            int inputRows = ringRows[stage - 1];
+            int[] target = rings[stage];
+            int targetOffset = (row % ringRows[stage]) * width;
+            int taps = level.tapX.length;
+            for (int t = 0; t < taps; t++) {
+                rowOffsets[t] = ((row + level.tapY[t]) % inputRows) * width + level.tapX[t];
+            }
+            int border = 0;
+            for (int i = 0; i < stage; i++) {
+                border += levels[i].radius;
+            }
+            int[] weightX = level.weightX;
+            int[] weightY = level.weightY;
+            for (int x = border; x < width - border; x++) {
+                int gx = 0;
+                int gy = 0;
+                for (int t = 0; t < taps; t++) {
+                    int value = input[rowOffsets[t] + x];
+                    gx += weightX[t] * value;
+                    gy += weightY[t] * value;
+                }
+                target[targetOffset + x] = level.magnitude(gx, gy);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.image;
+
+import javafx.scene.image.Image;
+
+import java.lang.ref.WeakReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * 按图像缓存分析结果：亮度平面，以及各算子在该平面上的原始幅值平面。
+ * <p>
+ * 强度只影响幅值到像素的映射，因此同一图像、同一算子在不同强度下只需一次查表的重映射。
+ * 缓存以对象身份（弱引用）为键，按字节预算淘汰，默认预算可通过 {@code image.analysisBytes} 调整。
+ */
+public final class ImageAnalysisCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = Long.getLong("image.analysisBytes", 256L * 1024 * 1024);
+
+    private static final ImageAnalysisCache SHARED = new ImageAnalysisCache(DEFAULT_BUDGET_BYTES);
+
+    // 亮度平面的缓存键名，算子平面使用算子 id
+    private static final String LUMINANCE = "#luminance";
+
+    private final LruCache<PlaneKey, Object> planes;
+
+    public ImageAnalysisCache(long budgetBytes) {
+        this.planes = new LruCache<>(budgetBytes, ImageAnalysisCache::weigh);
+    }
+
+    public static ImageAnalysisCache shared() {
+        return SHARED;
+    }
+
+    // 图像的亮度平面，首次访问时读取并缓存
+    public PixelRaster luminance(Image image) {
+        PlaneKey key = new PlaneKey(image, LUMINANCE);
+        PixelRaster raster = (PixelRaster) planes.get(key);
+        if (raster == null) {
+            ImageMetrics.Timer timer = ImageMetrics.start("convert");
+            raster = PixelRaster.of(image);
+            timer.stop((long) raster.getWidth() * raster.getHeight());
+            planes.put(key, raster);
+        }
+        return raster;
+    }
+
+    /**
+     * 以指定强度在 source 上应用算子，结果写入 output。
+     * 原始幅值平面已缓存时只做一次重映射，否则计算一次并在同一遍中存入缓存。
+     *
+     * @throws java.util.concurrent.CancellationException 若计算被取消，此时不会缓存任何结果
+     */
+    public void render(PixelRaster source, ImageOperator operator, int strength, int[] output,
+                       BooleanSupplier cancelled, IntConsumer progress) {
+        // 结果不只通过查找表依赖强度的算子每次都完整计算
+        if (operator instanceof MultiPassOperator multiPass) {
+            multiPass.process(source, output, strength, cancelled, progress);
+            return;
+        }
+        PlaneKey key = new PlaneKey(source, operator.getId());
+        int[] lut = EdgeLut.forStrength(strength);
+        int width = source.getWidth();
+        char[] cached = (char[]) planes.get(key);
+        if (cached != null) {
+            ParallelBands.forEach(0, source.getHeight(), (rowStart, rowEnd) -> {
+                for (int i = rowStart * width; i < rowEnd * width; i++) {
+                    output[i] = EdgeLut.remap(lut, cached[i]);
+                }
+            }, cancelled, progress);
+            return;
+        }
+        char[] magnitudes = new char[width * source.getHeight()];
+        ParallelBands.forEach(0, source.getHeight(), (rowStart, rowEnd) -> {
+            operator.apply(source, output, rowStart, rowEnd, EdgeLut.raw());
+            for (int i = rowStart * width; i < rowEnd * width; i++) {
+                int raw = output[i];
+                magnitudes[i] = (char) raw;
+                output[i] = EdgeLut.remap(lut, raw);
+            }
+        }, cancelled, progress);
+        planes.put(key, magnitudes);
+    }
+
+    // 清空缓存
+    public void clear() {
+        planes.clear();
+    }
+
+    public long getTotalBytes() {
+        return planes.getTotalBytes();
+    }
+
+    public long getHits() {
+        return planes.getHits();
+    }
+
+    public long getMisses() {
+        return planes.getMisses();
+    }
+
+    private static long weigh(Object plane) {
+        if (plane instanceof PixelRaster raster) {
+            return (long) raster.getWidth() * raster.getHeight();
+        }
+        return ((char[]) plane).length * 2L;
+    }
+
+    // 以对象身份比较的弱引用键，不会阻止图像被回收；被回收后的条目不再命中，随 LRU 淘汰
+    private static final class PlaneKey {
+        private final WeakReference<Object> owner;
+        private final int hash;
+        private final String plane;
+
+        PlaneKey(Object owner, String plane) {
+            this.owner = new WeakReference<>(owner);
+            this.hash = System.identityHashCode(owner) * 31 + plane.hashCode();
+            this.plane = plane;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PlaneKey key) || key.hash != hash || !key.plane.equals(plane)) {
+                return false;
+            }
+            Object referent = owner.get();
+            return referent != null && referent == key.owner.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
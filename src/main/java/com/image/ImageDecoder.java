@@ -0,0 +1,146 @@
+package com.image;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * 经 ImageIO 解码 JavaFX 不支持的格式（如 TIFF、WBMP），可按源子采样快速生成预览。
+ * 方法会阻塞，应在后台线程中调用；取消时经 {@link ImageReader#abort()} 中止正在进行的解码。
+ */
+public final class ImageDecoder {
+
+    // JavaFX Image 能直接解码的格式
+    private static final List<String> FX_SUFFIXES = List.of("png", "jpg", "jpeg", "bmp", "gif");
+
+    private ImageDecoder() {
+    }
+
+    public static boolean isFxSupported(String fileName) {
+        return FX_SUFFIXES.contains(fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // 以整数步长子采样解码，结果不超过 maxWidth x maxHeight 的两倍
+    public static Image decodePreview(File file, double maxWidth, double maxHeight, BooleanSupplier cancelled)
+            throws IOException {
+        return decode(file, (reader, param) -> {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int step = (int) Math.max(1, Math.floor(Math.min(width / maxWidth, height / maxHeight)));
+            param.setSourceSubsampling(step, step, 0, 0);
+        }, cancelled, progress -> { });
+    }
+
+    // 全分辨率解码，progress 接收 0~1 的进度
+    public static Image decodeFull(File file, BooleanSupplier cancelled, DoubleConsumer progress) throws IOException {
+        return decode(file, (reader, param) -> { }, cancelled, progress);
+    }
+
+    private interface ParamSetup {
+        void apply(ImageReader reader, ImageReadParam param) throws IOException;
+    }
+
+    /**
+     * @throws CancellationException 若解码期间 cancelled 变为 true
+     */
+    private static Image decode(File file, ParamSetup setup, BooleanSupplier cancelled, DoubleConsumer progress)
+            throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            if (stream == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file.getName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                setup.apply(reader, param);
+                // 读取器在解码过程中定期报告进度，借此检查取消并中止读取
+                reader.addIIOReadProgressListener(new ProgressAdapter(cancelled, progress));
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                BufferedImage image = reader.read(0, param);
+                // 中止后 read 返回不完整的图像
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                return toFxImage(image);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static Image toFxImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableImage result = new WritableImage(width, height);
+        result.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(),
+                PixelRaster.readArgb(image), 0, width);
+        return result;
+    }
+
+    private record ProgressAdapter(BooleanSupplier cancelled, DoubleConsumer progress)
+            implements IIOReadProgressListener {
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            if (cancelled.getAsBoolean()) {
+                source.abort();
+                return;
+            }
+            progress.accept(percentageDone / 100);
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+            progress.accept(1);
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+    }
+}
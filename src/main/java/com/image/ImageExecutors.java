@@ -0,0 +1,33 @@
+package com.image;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用内所有图像任务（边缘检测、预览、解码、导出）共用的后台线程池。
+ * <p>
+ * 线程数有上限，默认与处理器数相同，可通过系统属性 {@code image.workers} 调整；
+ * 行带级别的并行计算仍由 {@link ParallelBands} 完成，本线程池只负责调度任务本身。
+ */
+public final class ImageExecutors {
+
+    private static final int WORKERS = Math.max(2,
+            Integer.getInteger("image.workers", Runtime.getRuntime().availableProcessors()));
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService SHARED = Executors.newFixedThreadPool(WORKERS, runnable -> {
+        Thread thread = new Thread(runnable, "image-worker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ImageExecutors() {
+    }
+
+    // 共享线程池，调用方不应关闭它
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+}
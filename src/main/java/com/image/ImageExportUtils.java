@@ -1,21 +1,24 @@
 package com.image;
 
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.control.Alert;
+import javafx.concurrent.Task;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.WritableImage;
-import javafx.scene.layout.AnchorPane;
-import javafx.scene.transform.Transform;
-import javafx.stage.DirectoryChooser;
-import javafx.stage.Stage;
+import javafx.scene.image.PixelFormat;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.awt.image.RasterFormatException;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
 
 public class ImageExportUtils {
     private String suffix;
@@ -30,110 +33,137 @@ public class ImageExportUtils {
     private double pX;
     private double pY;
 
-    // 裁剪图像
+    // 裁剪图像，与 ImageUtils.cropImage 相同
     public static Image cropImage(ImageView imageView, double startX, double startY, double endX, double endY) {
-        if (imageView.getImage() == null) {
-            showAlert("No image loaded!");
-            return null;
-        }
+        return ImageUtils.cropImage(imageView, startX, startY, endX, endY);
+    }
 
-        // 计算裁剪区域的宽和高
-        double cropWidth = Math.abs(endX - startX);
-        double cropHeight = Math.abs(endY - startY);
+    // 导出参数：目标尺寸（0 表示原始分辨率）、JPEG 质量（0~1）与 PNG 压缩级别（0~9）
+    public record ExportOptions(int targetWidth, int targetHeight, float jpegQuality, int pngCompressionLevel) {
 
-        // 避免裁剪区域过小
-        if (cropWidth < 5 || cropHeight < 5) {
-            showAlert("The crop area is too small!");
-            return null;
+        // 原始分辨率导出
+        public static ExportOptions nativeSize(float jpegQuality, int pngCompressionLevel) {
+            return new ExportOptions(0, 0, jpegQuality, pngCompressionLevel);
         }
+    }
 
-        // 计算图像和视图的比例
-        double imageWidth = imageView.getImage().getWidth();
-        double imageHeight = imageView.getImage().getHeight();
-        double viewWidth = imageView.getFitWidth();
-        double viewHeight = imageView.getFitHeight();
-
-        double scaleX = imageWidth / viewWidth;
-        double scaleY = imageHeight / viewHeight;
+    /**
+     * 在后台线程中以图像的真实像素导出，返回已提交的任务，可通过其 progress 属性观察编码进度。
+     * 不再对界面做 5 倍快照，也不经过 SwingFXUtils 转换。
+     */
+    public static Task<File> exportImage(Image image, File file, String format, ExportOptions options) {
+        Task<File> task = new Task<>() {
+            @Override
+            protected File call() throws Exception {
+                ImageMetrics.Timer convertTimer = ImageMetrics.start("convert");
+                BufferedImage pixels = toBufferedImage(image, hasAlpha(format));
+                convertTimer.stop((long) pixels.getWidth() * pixels.getHeight());
+                ImageMetrics.Timer exportTimer = ImageMetrics.start("export");
+                if (options.targetWidth() > 0 && options.targetHeight() > 0) {
+                    pixels = resize(pixels, options.targetWidth(), options.targetHeight());
+                }
+                write(pixels, file, format, options, this::updateProgress);
+                exportTimer.stop((long) pixels.getWidth() * pixels.getHeight());
+                return file;
+            }
+        };
+        ImageExecutors.shared().execute(task);
+        return task;
+    }
 
-        // 计算裁剪区域在原始图像上的位置
-        double cropStartX = (Math.min(startX, endX) - imageView.getLayoutX()) * scaleX;
-        double cropStartY = (Math.min(startY, endY) - imageView.getLayoutY()) * scaleY;
-        cropWidth = cropWidth * scaleX;
-        cropHeight = cropHeight * scaleY;
+    // 进度回调
+    private interface ProgressSink {
+        void update(double done, double total);
+    }
 
-        // 确保裁剪区域在图像范围内
-        if (cropStartX + cropWidth > imageWidth) {
-            cropWidth = imageWidth - cropStartX;
+    private static void write(BufferedImage image, File file, String format, ExportOptions options,
+                              ProgressSink progress) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format: " + format);
         }
-        if (cropStartY + cropHeight > imageHeight) {
-            cropHeight = imageHeight - cropStartY;
-        }
-
-        if (cropStartX < 0 || cropStartY < 0 || cropWidth <= 0 || cropHeight <= 0) {
-            showAlert("Invalid crop area!");
-            return null;
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            String lower = format.toLowerCase(Locale.ROOT);
+            if (lower.equals("jpg") || lower.equals("jpeg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(clamp(options.jpegQuality()));
+            } else if (lower.equals("png")) {
+                // PNG 编码器的压缩质量 1.0 对应 deflate 级别 0，0.0 对应级别 9
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(clamp(1f - options.pngCompressionLevel() / 9f));
+            }
         }
+        writer.addIIOWriteProgressListener(new IIOWriteProgressListener() {
+            @Override
+            public void imageProgress(ImageWriter source, float percentageDone) {
+                progress.update(percentageDone, 100);
+            }
 
-        try {
-            // 执行裁剪
-            BufferedImage bufferedImage = SwingFXUtils.fromFXImage(imageView.getImage(), null);
-            BufferedImage croppedImage = bufferedImage.getSubimage(
-                    (int) cropStartX, (int) cropStartY, (int) cropWidth, (int) cropHeight);
+            @Override
+            public void imageComplete(ImageWriter source) {
+                progress.update(100, 100);
+            }
 
-            return SwingFXUtils.toFXImage(croppedImage, null);
-        } catch (RasterFormatException ex) {
-            showAlert("Cropping failed: " + ex.getMessage());
-            return null;
-        }
-    }
+            @Override
+            public void imageStarted(ImageWriter source, int imageIndex) {
+            }
 
-    // 导出图像到用户选择的目录
-    public static void exportImage(AnchorPane imagePane, String fileSuffix) {
-        if (fileSuffix == null || fileSuffix.isEmpty()) {
-            showAlert("Invalid file extension!");
-            return;
-        }
+            @Override
+            public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+            }
 
-        // 创建 SnapshotParameters 对象，保持缩放比例
-        SnapshotParameters sp = new SnapshotParameters();
-        sp.setTransform(Transform.scale(5, 5)); // 将图像放大 5 倍，导出高分辨率图像
+            @Override
+            public void thumbnailProgress(ImageWriter source, float percentageDone) {
+            }
 
-        // 获取当前图像的快照 (包括裁剪后的部分)
-        WritableImage imgReturn = imagePane.snapshot(sp, null);
+            @Override
+            public void thumbnailComplete(ImageWriter source) {
+            }
 
-        // 弹出选择导出目录对话框
-        DirectoryChooser directoryChooser = new DirectoryChooser();
-        File directory = directoryChooser.showDialog(new Stage());
+            @Override
+            public void writeAborted(ImageWriter source) {
+            }
+        });
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            if (out == null) {
+                throw new IOException("Cannot open " + file + " for writing");
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
 
-        if (directory != null) {
-            // 设置导出的文件名
-            String fileName = directory + "/exportedImage." + fileSuffix;
-            File file = new File(fileName);
+    // 通过 PixelReader 直接读取原始分辨率的像素
+    static BufferedImage toBufferedImage(Image image, boolean keepAlpha) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        BufferedImage result = new BufferedImage(width, height,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return result;
+    }
 
-            BufferedImage bufferedImage = SwingFXUtils.fromFXImage(imgReturn, null);
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, image.getType());
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
 
-            try {
-                // 写入文件
-                boolean write = ImageIO.write(bufferedImage, fileSuffix, file);
-                if (write) {
-                    showAlert("Image exported successfully to: " + file.getAbsolutePath());
-                }
-            } catch (IOException e) {
-                showAlert("File write error: " + e.getMessage());
-                e.printStackTrace();
-            }
-        } else {
-            showAlert("No directory selected.");
-        }
+    // JPEG、BMP 等格式不支持透明通道
+    private static boolean hasAlpha(String format) {
+        String lower = format.toLowerCase(Locale.ROOT);
+        return lower.equals("png") || lower.equals("gif") || lower.equals("tif") || lower.equals("tiff");
     }
 
-    // 显示提示信息
-    private static void showAlert(String message) {
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Image Processing");
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+    private static float clamp(float value) {
+        return Math.max(0f, Math.min(1f, value));
     }
 }
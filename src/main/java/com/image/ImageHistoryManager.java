@@ -1,30 +1,393 @@
 package com.image;
 
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
 
-import java.util.Stack;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+/**
+ * 有内存预算的撤销/重做历史。
+ * <p>
+ * 栈顶状态始终以原始 {@link Image} 保存，撤销最近一步无需任何解码。
+ * 其余状态在后台线程中以 deflate 无损压缩原始 BGRA 像素；堆内占用超出预算后，
+ * 最旧的压缩状态通过内存映射写入临时文件，需要时再读回解压。
+ * 离开历史的状态（被撤销/重做取出或被新操作丢弃的重做记录）释放其文件区域，供之后的溢出复用，
+ * 因此文件大小只与仍在历史中的溢出状态有关。
+ */
 public class ImageHistoryManager {
 
-    private final Stack<Image> history = new Stack<>();
+    // 默认堆内预算，可通过 -Dimage.historyBytes 调整
+    private static final long DEFAULT_BUDGET_BYTES = Long.getLong("image.historyBytes", 512L * 1024 * 1024);
 
-    // 保存当前图像的快照
-    public void saveState(Image image) {
+    private final Deque<Entry> undoStack = new ArrayDeque<>();
+    private final Deque<Entry> redoStack = new ArrayDeque<>();
+    private final long budgetBytes;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel spillChannel;
+    private Path spillPath;
+    // 文件中已使用区域的末尾
+    private long spillPosition;
+    // 文件中可复用的空闲区域：起始位置 -> 长度，相邻区域合并
+    private final TreeMap<Long, Long> freeRegions = new TreeMap<>();
+
+    public ImageHistoryManager() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public ImageHistoryManager(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    // 保存当前图像的快照，新的操作会清空重做记录
+    public synchronized void saveState(Image image) {
         if (image != null) {
-            history.push(image);
+            ImageMetrics.Timer timer = ImageMetrics.start("history.push");
+            redoStack.forEach(this::release);
+            redoStack.clear();
+            push(undoStack, image);
+            timer.stop((long) image.getWidth() * (long) image.getHeight());
         }
     }
 
-    // 撤销至上一状态
-    public Image undo() {
-        if (!history.isEmpty()) {
-            return history.pop();
-        }
-        return null; // 如果没有可撤销的状态，返回 null
+    /**
+     * 撤销至上一状态。
+     *
+     * @param current 当前显示的图像，会被放入重做栈
+     * @return 上一状态，如果没有可撤销的状态，返回 null
+     */
+    public synchronized Image undo(Image current) {
+        return step(undoStack, redoStack, current);
+    }
+
+    // 重做被撤销的状态，current 会被放回撤销栈
+    public synchronized Image redo(Image current) {
+        return step(redoStack, undoStack, current);
     }
 
     // 检查是否可以撤销
-    public boolean canUndo() {
-        return !history.isEmpty();
+    public synchronized boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public synchronized boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    // 清空全部历史并释放溢出文件
+    public synchronized void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        freeRegions.clear();
+        if (spillChannel != null) {
+            try {
+                spillChannel.truncate(0);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            spillPosition = 0;
+        }
+    }
+
+    // 当前堆内占用（原始图像与压缩数据）
+    public synchronized long getResidentBytes() {
+        long total = 0;
+        for (Entry entry : undoStack) {
+            total += entry.residentBytes();
+        }
+        for (Entry entry : redoStack) {
+            total += entry.residentBytes();
+        }
+        return total;
+    }
+
+    private Image step(Deque<Entry> from, Deque<Entry> to, Image current) {
+        if (from.isEmpty()) {
+            return null;
+        }
+        Entry entry = from.pop();
+        if (current != null) {
+            push(to, current);
+        }
+        Image image = entry.image != null ? entry.image : restore(entry);
+        release(entry);
+        // 新的栈顶在后台解压，保证下一次撤销也是即时的
+        Entry top = from.peek();
+        if (top != null && top.image == null) {
+            worker.execute(() -> rehydrate(top));
+        }
+        return image;
+    }
+
+    // 压入原始图像，原栈顶转入后台压缩
+    private void push(Deque<Entry> stack, Image image) {
+        Entry previous = stack.peek();
+        stack.push(new Entry(image));
+        if (previous != null && previous.image != null && previous.compressed == null && previous.spillOffset < 0) {
+            worker.execute(() -> compress(previous));
+        }
+        enforceBudget();
+    }
+
+    private void compress(Entry entry) {
+        Image image;
+        synchronized (this) {
+            image = entry.image;
+        }
+        if (image == null) {
+            return;
+        }
+        ImageMetrics.Timer timer = ImageMetrics.start("history.compress");
+        byte[] compressed = deflate(readPixels(image));
+        timer.stop((long) image.getWidth() * (long) image.getHeight());
+        synchronized (this) {
+            if (entry.compressed == null && entry.spillOffset < 0) {
+                entry.compressed = compressed;
+            }
+            if (!isTop(entry)) {
+                entry.image = null;
+            }
+            enforceBudget();
+        }
+    }
+
+    private void rehydrate(Entry entry) {
+        byte[] compressed;
+        synchronized (this) {
+            if (entry.image != null || !isTop(entry)) {
+                return;
+            }
+            compressed = entry.compressedBytes();
+        }
+        Image image = toImage(entry, inflate(compressed, entry.width * entry.height * 4));
+        synchronized (this) {
+            if (isTop(entry)) {
+                entry.image = image;
+                enforceBudget();
+            }
+        }
+    }
+
+    // 同步解压：仅用于撤销到尚未在后台还原的状态
+    private Image restore(Entry entry) {
+        return toImage(entry, inflate(entry.compressedBytes(), entry.width * entry.height * 4));
+    }
+
+    private boolean isTop(Entry entry) {
+        return undoStack.peek() == entry || redoStack.peek() == entry;
+    }
+
+    // 超出预算时从最旧的状态开始，把已压缩的非栈顶状态写入磁盘；尚在后台压缩的状态在压缩完成后再检查
+    private void enforceBudget() {
+        long resident = getResidentBytes();
+        resident = spillOldest(undoStack, resident);
+        spillOldest(redoStack, resident);
+    }
+
+    private long spillOldest(Deque<Entry> stack, long resident) {
+        Iterator<Entry> oldestFirst = stack.descendingIterator();
+        while (resident > budgetBytes && oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            if (entry.compressed == null || isTop(entry)) {
+                continue;
+            }
+            long before = entry.residentBytes();
+            spill(entry);
+            resident -= before - entry.residentBytes();
+        }
+        return resident;
+    }
+
+    private void spill(Entry entry) {
+        try {
+            if (spillChannel == null) {
+                spillPath = Files.createTempFile("image-history", ".bin");
+                spillPath.toFile().deleteOnExit();
+                spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            long offset = allocate(entry.compressed.length);
+            MappedByteBuffer buffer = spillChannel.map(FileChannel.MapMode.READ_WRITE, offset, entry.compressed.length);
+            buffer.put(entry.compressed);
+            entry.spillOffset = offset;
+            entry.spillLength = entry.compressed.length;
+            entry.compressed = null;
+            entry.image = null;
+        } catch (IOException e) {
+            // 无法写盘时保留在内存中
+            e.printStackTrace();
+        }
+    }
+
+    // 首次适配：优先复用足够大的空闲区域，否则追加到文件末尾
+    private long allocate(int length) {
+        for (Map.Entry<Long, Long> region : freeRegions.entrySet()) {
+            if (region.getValue() >= length) {
+                long offset = region.getKey();
+                freeRegions.remove(offset);
+                if (region.getValue() > length) {
+                    freeRegions.put(offset + length, region.getValue() - length);
+                }
+                return offset;
+            }
+        }
+        long offset = spillPosition;
+        spillPosition += length;
+        return offset;
+    }
+
+    // 状态离开历史时归还其文件区域，与相邻空闲区域合并；位于末尾的空闲区域直接截掉
+    private void release(Entry entry) {
+        if (entry.spillOffset < 0) {
+            return;
+        }
+        long offset = entry.spillOffset;
+        long length = entry.spillLength;
+        entry.spillOffset = -1;
+        Map.Entry<Long, Long> before = freeRegions.floorEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == offset) {
+            freeRegions.remove(before.getKey());
+            offset = before.getKey();
+            length += before.getValue();
+        }
+        Long after = freeRegions.remove(offset + length);
+        if (after != null) {
+            length += after;
+        }
+        if (offset + length == spillPosition) {
+            spillPosition = offset;
+            try {
+                spillChannel.truncate(spillPosition);
+            } catch (IOException e) {
+                // 仍有映射时部分平台不允许截断，空间留待之后复用
+            }
+        } else {
+            freeRegions.put(offset, length);
+        }
+    }
+
+    // 溢出文件已使用的字节数，包括其中的空闲区域
+    synchronized long getSpillBytes() {
+        return spillPosition;
+    }
+
+    // 等待已提交的后台压缩与解压完成
+    void awaitIdle() throws InterruptedException {
+        try {
+            worker.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private byte[] readSpilled(Entry entry) {
+        try {
+            MappedByteBuffer buffer = spillChannel.map(FileChannel.MapMode.READ_ONLY, entry.spillOffset, entry.spillLength);
+            byte[] bytes = new byte[entry.spillLength];
+            buffer.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readPixels(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        byte[] pixels = new byte[width * height * 4];
+        PixelReader reader = image.getPixelReader();
+        reader.getPixels(0, 0, width, height, PixelFormat.getByteBgraInstance(), pixels, 0, width * 4);
+        return pixels;
+    }
+
+    private static Image toImage(Entry entry, byte[] pixels) {
+        WritableImage image = new WritableImage(entry.width, entry.height);
+        image.getPixelWriter().setPixels(0, 0, entry.width, entry.height,
+                PixelFormat.getByteBgraInstance(), pixels, 0, entry.width * 4);
+        return image;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int size) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[size];
+            int offset = 0;
+            while (offset < size && !inflater.finished()) {
+                offset += inflater.inflate(raw, offset, size - offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted history state", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // 单个历史状态：原始图像、堆内压缩数据或磁盘上的压缩数据
+    private final class Entry {
+        final int width;
+        final int height;
+        Image image;
+        byte[] compressed;
+        long spillOffset = -1;
+        int spillLength;
+
+        Entry(Image image) {
+            this.image = image;
+            this.width = (int) image.getWidth();
+            this.height = (int) image.getHeight();
+        }
+
+        long residentBytes() {
+            long bytes = compressed == null ? 0 : compressed.length;
+            if (image != null) {
+                bytes += (long) width * height * 4;
+            }
+            return bytes;
+        }
+
+        byte[] compressedBytes() {
+            return compressed != null ? compressed : readSpilled(this);
+        }
     }
 }
@@ -0,0 +1,196 @@
+package com.image;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 图像操作的计时统计。
+ * <p>
+ * 每个操作（加载、解码、转换、各算子、裁剪、历史记录、导出）按名称累计延迟直方图、处理像素数与分配字节数，
+ * 并提交一个 {@link ImageOperationEvent}。分配字节数来自调用线程，行带并行时工作线程中的分配不计入。
+ * <pre>
+ * ImageMetrics.Timer timer = ImageMetrics.start("crop");
+ * ...
+ * timer.stop(width * height);
+ * </pre>
+ */
+public final class ImageMetrics {
+
+    // 直方图桶数：第 i 个桶记录 [2^(i-1), 2^i) 微秒的样本
+    private static final int BUCKETS = 40;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    private static final CopyOnWriteArrayList<Consumer<Sample>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile Sample last;
+
+    private ImageMetrics() {
+    }
+
+    // 单次操作的结果
+    public record Sample(String operation, long nanos, long pixels, long allocatedBytes) {
+
+        // 每秒处理的百万像素数
+        public double megapixelsPerSecond() {
+            return nanos == 0 ? 0 : pixels * 1000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %.1f ms, %.1f MP, %.0f MP/s", operation, nanos / 1e6, pixels / 1e6,
+                    megapixelsPerSecond());
+        }
+    }
+
+    // 开始计时，操作完成后调用 stop；未调用 stop 的计时不会被记录
+    public static Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    // 最近一次完成的操作，尚无记录时返回 null
+    public static Sample getLast() {
+        return last;
+    }
+
+    // 每次操作完成后在完成操作的线程上回调
+    public static void addListener(Consumer<Sample> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Consumer<Sample> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    // 清空累计数据
+    public static void reset() {
+        STATS.clear();
+        last = null;
+    }
+
+    // 按操作名排列的累计统计表
+    public static String summary() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-20s %8s %10s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc MB"));
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(STATS).entrySet()) {
+            Stats stats = entry.getValue();
+            long count = stats.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            text.append(String.format(Locale.ROOT, "%-20s %8d %10.2f %10.2f %10.2f %10.2f %10.2f %12.1f  %.0f MP/s%n",
+                    entry.getKey(), count, stats.totalNanos.sum() / 1e6 / count,
+                    stats.percentileMillis(0.50), stats.percentileMillis(0.90), stats.percentileMillis(0.99),
+                    stats.maxNanos.get() / 1e6, stats.allocatedBytes.sum() / 1e6, stats.megapixelsPerSecond()));
+        }
+        return text.toString();
+    }
+
+    // 将累计统计写入文本文件
+    public static void dump(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.print(summary());
+        }
+    }
+
+    private static void record(Sample sample) {
+        STATS.computeIfAbsent(sample.operation(), name -> new Stats()).add(sample);
+        last = sample;
+        for (Consumer<Sample> listener : LISTENERS) {
+            listener.accept(sample);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // 一次进行中的计时
+    public static final class Timer {
+        private final String operation;
+        private final long startNanos;
+        private final long startAllocated;
+        private final ImageOperationEvent event = new ImageOperationEvent();
+
+        private Timer(String operation) {
+            this.operation = operation;
+            this.startAllocated = allocatedBytes();
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        // 结束计时并记录，pixels 为本次处理的像素数
+        public Sample stop(long pixels) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = Math.max(0, allocatedBytes() - startAllocated);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.pixels = pixels;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+            Sample sample = new Sample(operation, nanos, pixels, allocated);
+            record(sample);
+            return sample;
+        }
+    }
+
+    // 单个操作的累计数据
+    private static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder pixels = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void add(Sample sample) {
+            count.increment();
+            totalNanos.add(sample.nanos());
+            pixels.add(sample.pixels());
+            allocatedBytes.add(sample.allocatedBytes());
+            maxNanos.accumulateAndGet(sample.nanos(), Math::max);
+            long micros = sample.nanos() / 1000;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+        }
+
+        // 以桶上界估计分位数
+        double percentileMillis(double quantile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += histogram.get(i);
+            }
+            long target = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= target && seen > 0) {
+                    return Math.min((1L << i) / 1000.0, maxNanos.get() / 1e6);
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        double megapixelsPerSecond() {
+            long nanos = totalNanos.sum();
+            return nanos == 0 ? 0 : pixels.sum() * 1000.0 / nanos;
+        }
+    }
+}
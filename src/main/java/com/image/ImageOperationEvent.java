@@ -0,0 +1,30 @@
+package com.image;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 每次图像操作提交的 JFR 事件，可在 JDK Mission Control 中按操作名筛选。
+ * 录制方式：-XX:StartFlightRecording:filename=image.jfr
+ */
+@Name("com.image.Operation")
+@Label("Image Operation")
+@Category("Image")
+@Description("Timing of a single image operation such as load, operator or export")
+public class ImageOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Pixels")
+    long pixels;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the calling thread during the operation")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,26 @@
+package com.image;
+
+/**
+ * 图像算子：从灰度平面计算每个像素的整数幅值，并经强度查找表映射为输出像素。
+ * <p>
+ * 实现必须只写入 [rowStart, rowEnd) 内的输出行，且只读取源平面，
+ * 以便 {@link ParallelBands} 可以把任意行区间交给不同线程执行。
+ */
+public interface ImageOperator {
+
+    // 注册表中的唯一标识
+    String getId();
+
+    // 界面上显示的名称
+    String getDisplayName();
+
+    // 算子读取邻域的半径（光晕行数）
+    int getRadius();
+
+    /**
+     * 计算输出行 [rowStart, rowEnd) 中算子有效范围内的像素。
+     *
+     * @param lut 由 {@link EdgeLut#forStrength(int)} 生成的幅值到 ARGB 像素的映射表
+     */
+    void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut);
+}
@@ -4,6 +4,8 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 
+import java.util.List;
+
 public class ImageResizeUtils {
 
     // 调整图像大小并居中
@@ -36,6 +38,31 @@ public class ImageResizeUtils {
         }
     }
 
+    /**
+     * 为视图当前的适配尺寸选择金字塔中最合适的一层：不小于实际显示像素数的最小一层，
+     * 显示像素数按窗口的输出缩放比（HiDPI）换算。
+     */
+    public static Image displayLevel(DisplayPyramid pyramid, ImageView imageView) {
+        Image source = pyramid.getSource();
+        double outputScale = imageView.getScene() != null && imageView.getScene().getWindow() != null
+                ? imageView.getScene().getWindow().getOutputScaleX() : 1;
+        double coeff = Math.min(1, getReducCoeff(imageView.getFitWidth(), imageView.getFitHeight(),
+                source.getWidth(), source.getHeight()));
+        return chooseLevel(pyramid.getLevels(), source.getWidth() * coeff * outputScale,
+                source.getHeight() * coeff * outputScale);
+    }
+
+    // 从由大到小排列的层级中选出宽高都不小于显示尺寸的最小一层
+    public static Image chooseLevel(List<Image> levels, double displayWidth, double displayHeight) {
+        for (int i = levels.size() - 1; i > 0; i--) {
+            Image level = levels.get(i);
+            if (level.getWidth() >= displayWidth && level.getHeight() >= displayHeight) {
+                return level;
+            }
+        }
+        return levels.get(0);
+    }
+
     // 计算缩放系数
     public static double getReducCoeff(double newWidth, double newHeight, double iWidth, double iHeight) {
         double ratioW = newWidth / iWidth;
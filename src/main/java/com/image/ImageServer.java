@@ -0,0 +1,481 @@
+package com.image;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地 HTTP 图像处理服务，基于 JDK 自带的 {@code com.sun.net.httpserver}，不需要启动 JavaFX。
+ * <p>
+ * {@code POST /process?op=sobel&strength=50&format=png} 的请求体为图像文件，响应为处理后的图像；
+ * {@code GET /operators} 列出算子标识，{@code GET /stats} 返回 {@link ImageMetrics} 统计与队列状态。
+ * <p>
+ * 请求由有界的连接线程池接收后放入有界队列，由固定数量的工作线程解码、处理与编码；队列已满时立即返回 503。
+ * 工作线程每次从队列中取出最多 {@code --batch} 个请求作为一批：算子、强度与宽度相同的小图像
+ * 纵向拼接为一个平面，只做一次按行带并行的计算，再按行拆回各自的结果，边界行单独按原图计算，
+ * 因此结果与逐个处理逐位一致。
+ * <pre>
+ * java -p &lt;module path&gt; -m com.image/com.image.ImageServer [--port 8080] [--workers N] [--queue 64] [--batch 16]
+ * </pre>
+ */
+public class ImageServer {
+
+    // 可参与拼接的小图像像素数上限
+    private static final long SMALL_PIXELS = 512L * 512;
+    // 请求体大小上限
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+    // 解码前按图像头检查的像素数上限，压缩率很高的小文件也可能解码出巨大的图像
+    private static final long MAX_PIXELS = 40_000_000L;
+    // 除排队与处理中的请求外，连接线程池为立即返回的请求（503、/stats 等）预留的线程数
+    private static final int SPARE_HANDLERS = 8;
+
+    private final Options options;
+    private final BlockingQueue<Job> queue;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedJobs = new LongAdder();
+    private final List<Thread> workers = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService handlers;
+    private volatile boolean running;
+
+    public ImageServer(Options options) {
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.queueCapacity);
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        ImageServer server = new ImageServer(options);
+        int port = server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Image server listening on http://localhost:" + port
+                + " (" + options.workers + " workers, queue " + options.queueCapacity + ")");
+    }
+
+    // 启动服务，返回实际监听的端口（--port 0 时由系统分配）
+    public synchronized int start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        server = HttpServer.create(new InetSocketAddress(options.host, options.port), options.backlog);
+        // 每个排队或处理中的请求占用一个连接线程等待结果，线程数按其上限再加少量余量
+        int threads = options.queueCapacity + options.workers * options.batchSize + SPARE_HANDLERS;
+        AtomicInteger created = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "image-server-http-" + created.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        handlers = pool;
+        server.setExecutor(handlers);
+        server.createContext("/process", exchange -> handle(exchange, this::process));
+        server.createContext("/operators", exchange -> handle(exchange, this::operators));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+        running = true;
+        for (int i = 0; i < options.workers; i++) {
+            Thread worker = new Thread(this::workLoop, "image-server-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    // 停止接收请求，排队中的请求以 503 结束
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        server.stop(0);
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        for (Job job = queue.poll(); job != null; job = queue.poll()) {
+            job.result.completeExceptionally(new ServiceException(503, "Server is shutting down"));
+        }
+        handlers.shutdown();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // 处理请求并写出响应，出错时转换为对应的状态码
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private record Response(int status, String contentType, byte[] body) {
+        static Response text(int status, String text) {
+            return new Response(status, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class ServiceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle(exchange);
+        } catch (ServiceException e) {
+            response = Response.text(e.status, e.getMessage() + "\n");
+        } catch (IllegalArgumentException e) {
+            response = Response.text(400, e.getMessage() + "\n");
+        } catch (IOException | RuntimeException e) {
+            response = Response.text(500, "Processing failed: " + e.getMessage() + "\n");
+        }
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            if (response.status() == 503) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            exchange.sendResponseHeaders(response.status(), response.body().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body());
+            }
+        }
+    }
+
+    private Response process(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw new ServiceException(405, "Use POST with the image as the request body");
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String id = query.getOrDefault("op", OperatorRegistry.SOBEL);
+        ImageOperator operator = id.equals("none") ? null : OperatorRegistry.get(id);
+        int strength = Integer.parseInt(query.getOrDefault("strength", "50"));
+        String format = query.getOrDefault("format", "png").toLowerCase(Locale.ROOT);
+        if (!ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            throw new IllegalArgumentException("Unsupported output format: " + format);
+        }
+
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new ServiceException(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+        }
+        Job job = new Job(body, operator, strength, format);
+        // 有界队列：满时不等待，直接拒绝
+        if (!running || !queue.offer(job)) {
+            rejected.increment();
+            throw new ServiceException(503, "Server busy, retry later");
+        }
+        try {
+            return new Response(200, "image/" + format, job.result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(503, "Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Response operators(HttpExchange exchange) {
+        StringBuilder text = new StringBuilder();
+        for (ImageOperator operator : OperatorRegistry.getAll()) {
+            text.append(operator.getId()).append('\t').append(operator.getDisplayName()).append('\n');
+        }
+        return Response.text(200, text.toString());
+    }
+
+    private Response stats(HttpExchange exchange) {
+        long batchCount = batches.sum();
+        return Response.text(200, ImageMetrics.summary() + String.format(Locale.ROOT,
+                "queued %d, rejected %d, batches %d, mean batch size %.2f%n",
+                queue.size(), rejected.sum(), batchCount, batchCount > 0 ? (double) batchedJobs.sum() / batchCount : 0));
+    }
+
+    // 工作线程：阻塞等待一个请求，再顺带取走队列中已有的请求组成一批
+    private void workLoop() {
+        List<Job> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, options.batchSize - 1);
+            batches.increment();
+            batchedJobs.add(batch.size());
+            try {
+                processBatch(batch);
+            } catch (Throwable e) {
+                // 包括解码时的 OutOfMemoryError：结束本批所有请求，工作线程继续服务
+                batch.forEach(job -> job.result.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void processBatch(List<Job> batch) {
+        // 解码，算子、强度与宽度相同的小图像归为一组
+        Map<GroupKey, List<Job>> groups = new LinkedHashMap<>();
+        for (Job job : batch) {
+            try {
+                ImageMetrics.Timer timer = ImageMetrics.start("decode");
+                BufferedImage image = decode(job.body);
+                job.source = PixelRaster.of(image);
+                timer.stop((long) image.getWidth() * image.getHeight());
+            } catch (IOException | RuntimeException e) {
+                job.result.completeExceptionally(e instanceof IOException io ? new UncheckedIOException(io) : e);
+                continue;
+            }
+            long pixels = (long) job.source.getWidth() * job.source.getHeight();
+            boolean stackable = job.operator != null && !(job.operator instanceof MultiPassOperator)
+                    && pixels <= SMALL_PIXELS;
+            GroupKey key = stackable ? new GroupKey(job.operator, job.strength, job.source.getWidth()) : new GroupKey(job);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(job);
+        }
+        for (List<Job> group : groups.values()) {
+            if (group.size() == 1) {
+                detect(group.get(0));
+            } else {
+                detectStacked(group);
+            }
+            for (Job job : group) {
+                encode(job);
+            }
+        }
+    }
+
+    // 先读取图像头检查尺寸，超过上限时不解码
+    private static BufferedImage decode(byte[] body) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Request body is not a supported image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    throw new ServiceException(413, "Image has " + pixels + " pixels, the limit is " + MAX_PIXELS);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void detect(Job job) {
+        PixelRaster source = job.source;
+        job.output = new int[source.getWidth() * source.getHeight()];
+        if (job.operator == null) {
+            // 只转换格式：输出灰度图
+            byte[] gray = source.getGray();
+            for (int i = 0; i < gray.length; i++) {
+                job.output[i] = PixelRaster.grayArgb(gray[i] & 0xff);
+            }
+            return;
+        }
+        ImageMetrics.Timer timer = ImageMetrics.start(job.operator.getId());
+        EdgeDetectionTask.detect(source, job.operator, job.strength, job.output);
+        timer.stop((long) source.getWidth() * source.getHeight());
+    }
+
+    /**
+     * 将同宽的图像纵向拼接后一次计算。各图像内部距上下边界至少 radius 行的输出只读取本图像的行，
+     * 直接取自拼接结果；靠近边界的行读取了相邻图像，改为在原图上单独计算这些行。
+     */
+    private static void detectStacked(List<Job> group) {
+        Job first = group.get(0);
+        ImageOperator operator = first.operator;
+        int width = first.source.getWidth();
+        int radius = operator.getRadius();
+        int height = 0;
+        for (Job job : group) {
+            height += job.source.getHeight();
+        }
+        byte[] stacked = new byte[width * height];
+        int offset = 0;
+        for (Job job : group) {
+            byte[] gray = job.source.getGray();
+            System.arraycopy(gray, 0, stacked, offset, gray.length);
+            offset += gray.length;
+        }
+        ImageMetrics.Timer timer = ImageMetrics.start(operator.getId());
+        int[] output = new int[width * height];
+        EdgeDetectionTask.detect(PixelRaster.fromGray(stacked, width, height), operator, first.strength, output);
+
+        int[] lut = EdgeLut.forStrength(first.strength);
+        offset = 0;
+        for (Job job : group) {
+            int rows = job.source.getHeight();
+            job.output = new int[width * rows];
+            int inner = Math.min(radius, rows);
+            int outer = Math.max(inner, rows - radius);
+            System.arraycopy(output, offset + inner * width, job.output, inner * width, (outer - inner) * width);
+            operator.apply(job.source, job.output, 0, inner, lut);
+            operator.apply(job.source, job.output, outer, rows, lut);
+            offset += width * rows;
+        }
+        timer.stop((long) width * height);
+    }
+
+    private static void encode(Job job) {
+        if (job.result.isDone()) {
+            return;
+        }
+        try {
+            ImageMetrics.Timer timer = ImageMetrics.start("export");
+            int width = job.source.getWidth();
+            int height = job.source.getHeight();
+            BufferedImage image = PixelRaster.createArgbImage(width, height);
+            System.arraycopy(job.output, 0, PixelRaster.pixelsOf(image), 0, job.output.length);
+            if (!BatchProcessor.hasAlphaSupport(job.format)) {
+                image = BatchProcessor.withoutAlpha(image);
+            }
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, job.format, encoded)) {
+                throw new IllegalArgumentException("No writer for format " + job.format);
+            }
+            timer.stop((long) width * height);
+            job.result.complete(encoded.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            job.result.completeExceptionally(e instanceof IOException io ? new UncheckedIOException(io) : e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return values;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            values.put(name, value);
+        }
+        return values;
+    }
+
+    // 一个排队中的请求
+    private static final class Job {
+        final byte[] body;
+        final ImageOperator operator;
+        final int strength;
+        final String format;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        PixelRaster source;
+        int[] output;
+
+        Job(byte[] body, ImageOperator operator, int strength, String format) {
+            this.body = body;
+            this.operator = operator;
+            this.strength = strength;
+            this.format = format;
+        }
+    }
+
+    // 拼接分组的键；不可拼接的请求以自身为键单独成组
+    private record GroupKey(Object operator, int strength, int width) {
+        GroupKey(Job job) {
+            this(job, 0, 0);
+        }
+    }
+
+    // 命令行参数
+    public static final class Options {
+        static final String USAGE = "Usage: ImageServer [--host 127.0.0.1] [--port 8080] [--workers N]"
+                + " [--queue 64] [--batch 16] [--backlog 128]";
+
+        String host = "127.0.0.1";
+        int port = 8080;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int queueCapacity = 64;
+        int batchSize = 16;
+        int backlog = 128;
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--host" -> options.host = value;
+                    case "--port" -> options.port = Integer.parseInt(value);
+                    case "--workers" -> options.workers = positive(name, value);
+                    case "--queue" -> options.queueCapacity = positive(name, value);
+                    case "--batch" -> options.batchSize = positive(name, value);
+                    case "--backlog" -> options.backlog = positive(name, value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            if (options.port < 0 || options.port > 65535) {
+                throw new IllegalArgumentException("Invalid port: " + options.port);
+            }
+            return options;
+        }
+
+        private static int positive(String name, String value) {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1");
+            }
+            return number;
+        }
+    }
+}
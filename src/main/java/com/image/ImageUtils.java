@@ -1,38 +1,79 @@
 package com.image;
 
-import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.awt.image.RasterFormatException;
+import java.util.List;
+import java.util.Locale;
 
 public class ImageUtils {
 
-    // 裁剪图像
+    private static final List<String> IMAGE_SUFFIXES = List.of("png", "jpg", "jpeg", "bmp", "gif", "tif", "tiff", "wbmp");
+
+    // 根据文件后缀判断是否为可解码的图像
+    public static boolean isImageFileName(String name) {
+        return IMAGE_SUFFIXES.contains(name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // 裁剪图像：直接按区域读取像素，不经过 BufferedImage 转换
     public static Image cropImage(ImageView imageView, double startX, double startY, double endX, double endY) {
-        if (imageView.getImage() == null) {
+        return cropImage(imageView, imageView.getImage(), startX, startY, endX, endY);
+    }
+
+    // 视图显示的可能是缩小的层级，image 为实际裁剪的全分辨率图像
+    public static Image cropImage(ImageView imageView, Image image, double startX, double startY, double endX, double endY) {
+        if (image == null) {
             showAlert("No image loaded!");
             return null;
         }
 
-        // 计算裁剪区域的宽和高
-        double cropWidth = Math.abs(endX - startX);
-        double cropHeight = Math.abs(endY - startY);
-
         // 避免裁剪区域过小
-        if (cropWidth < 5 || cropHeight < 5) {
+        if (Math.abs(endX - startX) < 5 || Math.abs(endY - startY) < 5) {
             showAlert("The crop area is too small!");
             return null;
         }
 
-        // 计算图像和视图的比例
-        double imageWidth = imageView.getImage().getWidth();
-        double imageHeight = imageView.getImage().getHeight();
-        double viewWidth = imageView.getFitWidth();
-        double viewHeight = imageView.getFitHeight();
+        Rectangle2D region = toImageRegion(imageView, image, startX, startY, endX, endY);
+        if (region == null) {
+            showAlert("Invalid crop area!");
+            return null;
+        }
+
+        // 执行裁剪
+        ImageMetrics.Timer timer = ImageMetrics.start("crop");
+        WritableImage cropped = new WritableImage(image.getPixelReader(), (int) region.getMinX(),
+                (int) region.getMinY(), (int) region.getWidth(), (int) region.getHeight());
+        timer.stop((long) region.getWidth() * (long) region.getHeight());
+        return cropped;
+    }
+
+    /**
+     * 将视图中选中的矩形换算为原始图像上的像素区域。
+     *
+     * @return 取整后的区域，区域无效时返回 null
+     */
+    public static Rectangle2D toImageRegion(ImageView imageView, double startX, double startY, double endX, double endY) {
+        return toImageRegion(imageView, imageView.getImage(), startX, startY, endX, endY);
+    }
+
+    // 按 image 的尺寸换算，视图中显示的可以是其缩小的层级
+    public static Rectangle2D toImageRegion(ImageView imageView, Image image, double startX, double startY, double endX, double endY) {
+        if (image == null) {
+            return null;
+        }
+
+        // 计算裁剪区域的宽和高
+        double cropWidth = Math.abs(endX - startX);
+        double cropHeight = Math.abs(endY - startY);
+
+        // 计算图像和视图的比例，保持宽高比时以实际显示尺寸为准
+        double imageWidth = image.getWidth();
+        double imageHeight = image.getHeight();
+        double viewWidth = imageView.getLayoutBounds().getWidth();
+        double viewHeight = imageView.getLayoutBounds().getHeight();
 
         double scaleX = imageWidth / viewWidth;
         double scaleY = imageHeight / viewHeight;
@@ -52,22 +93,10 @@ public class ImageUtils {
         }
 
         // 确保裁剪区域有效
-        if (cropStartX < 0 || cropStartY < 0 || cropWidth <= 0 || cropHeight <= 0) {
-            showAlert("Invalid crop area!");
-            return null;
-        }
-
-        try {
-            // 执行裁剪
-            BufferedImage bufferedImage = SwingFXUtils.fromFXImage(imageView.getImage(), null);
-            BufferedImage croppedImage = bufferedImage.getSubimage(
-                    (int) cropStartX, (int) cropStartY, (int) cropWidth, (int) cropHeight);
-
-            return SwingFXUtils.toFXImage(croppedImage, null);
-        } catch (RasterFormatException ex) {
-            showAlert("Cropping failed: " + ex.getMessage());
+        if (cropStartX < 0 || cropStartY < 0 || (int) cropWidth <= 0 || (int) cropHeight <= 0) {
             return null;
         }
+        return new Rectangle2D((int) cropStartX, (int) cropStartY, (int) cropWidth, (int) cropHeight);
     }
 
     // 显示提示信息
@@ -0,0 +1,135 @@
+package com.image;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.util.Duration;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 拖动强度滑块时的实时预览。
+ * <p>
+ * 参数变化经过防抖后，在缓存的缩小代理图像（尺寸与 ImageView 的适配尺寸一致）上运行所选算子，
+ * 结果写入同一块 {@link PixelSurface} 并原地刷新显示。新的预览任务会使尚未完成的旧任务失效，
+ * 全分辨率的计算只在用户提交时进行。除构造外的公开方法都必须在 FX 线程上调用。
+ */
+public class LivePreview {
+
+    // 参数停止变化多久后才开始计算
+    private static final Duration DEBOUNCE = Duration.millis(120);
+
+    private final ImageView imageView;
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private final AtomicLong generation = new AtomicLong();
+
+    private Image source;
+    private ImageOperator operator;
+    private int strength;
+    private Future<?> pending;
+    private PixelSurface surface;
+
+    // 代理图像缓存，预览任务之间串行访问
+    private Image proxySource;
+    private PixelRaster proxy;
+
+    public LivePreview(ImageView imageView) {
+        this.imageView = imageView;
+        debounce.setOnFinished(event -> render());
+    }
+
+    public boolean isActive() {
+        return source != null;
+    }
+
+    // 进入预览模式，source 为预览的来源图像，尺寸不小于显示尺寸即可
+    public void start(Image source) {
+        this.source = source;
+    }
+
+    // 参数变化，防抖后重新计算预览
+    public void update(ImageOperator operator, int strength) {
+        if (source == null || operator == null) {
+            return;
+        }
+        this.operator = operator;
+        this.strength = strength;
+        debounce.playFromStart();
+    }
+
+    // 退出预览模式并丢弃未完成的预览，返回来源图像；恢复显示由调用方负责
+    public Image stop() {
+        debounce.stop();
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        Image original = source;
+        source = null;
+        return original;
+    }
+
+    private void render() {
+        long current = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        Image image = source;
+        ImageOperator previewOperator = operator;
+        int previewStrength = strength;
+        double fitWidth = imageView.getFitWidth();
+        double fitHeight = imageView.getFitHeight();
+
+        pending = ImageExecutors.shared().submit(() -> {
+            PixelRaster raster = proxyFor(image, fitWidth, fitHeight);
+            if (current != generation.get()) {
+                return;
+            }
+            int[] edges = new int[raster.getWidth() * raster.getHeight()];
+            ImageMetrics.Timer timer = ImageMetrics.start("preview." + previewOperator.getId());
+            // 有更新的预览时中途放弃
+            BooleanSupplier superseded = () -> current != generation.get();
+            try {
+                // 代理图像的幅值平面已缓存时，拖动强度只需一次重映射
+                ImageAnalysisCache.shared().render(raster, previewOperator, previewStrength, edges,
+                        superseded, rows -> { });
+            } catch (CancellationException e) {
+                return;
+            }
+            timer.stop(edges.length);
+            Platform.runLater(() -> publish(current, image, raster, edges));
+        });
+    }
+
+    // 只显示最新一次预览的结果
+    private void publish(long current, Image image, PixelRaster raster, int[] edges) {
+        if (current != generation.get() || image != source) {
+            return;
+        }
+        if (surface == null || surface.getWidth() != raster.getWidth() || surface.getHeight() != raster.getHeight()) {
+            surface = PixelSurface.create(raster.getWidth(), raster.getHeight());
+        }
+        System.arraycopy(edges, 0, surface.getPixels(), 0, edges.length);
+        surface.markDirty();
+        if (imageView.getImage() != surface.getImage()) {
+            imageView.setImage(surface.getImage());
+        }
+    }
+
+    // 按适配尺寸等比缩小原图，只在原图或尺寸变化时重建
+    private synchronized PixelRaster proxyFor(Image image, double fitWidth, double fitHeight) {
+        double scale = Math.min(1.0, Math.min(fitWidth / image.getWidth(), fitHeight / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        if (proxySource != image || proxy.getWidth() != width || proxy.getHeight() != height) {
+            proxy = PixelRaster.downscale(image, width, height);
+            proxySource = image;
+        }
+        return proxy;
+    }
+}
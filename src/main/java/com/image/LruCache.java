@@ -0,0 +1,103 @@
+package com.image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按字节预算淘汰的 LRU 缓存，线程安全。
+ * <p>
+ * 每个值的大小由 weigher 估算，插入后若总大小超出预算，则从最久未访问的条目开始淘汰。
+ * 单个超出预算的值不会被缓存。
+ */
+public class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<V> weigher;
+    private long maxBytes;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    public LruCache(long maxBytes, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    // 命中时刷新访问顺序，未命中返回 null
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        V previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= weigher.applyAsLong(previous);
+        }
+        if (weight > maxBytes) {
+            return;
+        }
+        entries.put(key, value);
+        totalBytes += weight;
+        trim();
+    }
+
+    public synchronized V remove(K key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            totalBytes -= weigher.applyAsLong(value);
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    // 调整预算，必要时立即淘汰
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= weigher.applyAsLong(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+}
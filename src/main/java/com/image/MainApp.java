@@ -1,32 +1,67 @@
 package com.image;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
 
 public class MainApp extends Application {
 
     @Override
-    public void start(Stage stage) throws IOException {
-        try {
-            // 加载 FXML 文件并设置界面
-            Parent root = FXMLLoader.load(getClass().getResource("/Main.fxml"));
+    public void start(Stage stage) {
+        StartupTimer.milestone("toolkit-ready");
+
+        // 先显示只含提示文字的轻量窗口，尺寸与主界面一致，FXML 在后台加载
+        Label placeholder = new Label("Loading...");
+        StackPane shell = new StackPane(placeholder);
+        shell.setPrefSize(800, 700);
+        stage.setTitle("My Application");
+        stage.setScene(new Scene(shell));
+        stage.show();
+        StartupTimer.milestone("window-shown");
 
-            stage.setTitle("My Application");
-            stage.setScene(new Scene(root));
-            stage.show();
+        CompletableFuture<Parent> ui = CompletableFuture.supplyAsync(this::loadInterface);
+        CompletableFuture<Void> warmup = CompletableFuture.runAsync(StartupWarmup::run);
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        ui.whenComplete((root, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                placeholder.setText("Failed to load the user interface");
+                return;
+            }
+            stage.getScene().setRoot(root);
+            StartupTimer.milestone("ui-ready");
+        }));
+        // 预热失败不影响使用，只记录异常
+        CompletableFuture.allOf(ui, warmup.exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        })).whenComplete((ignored, error) -> StartupTimer.finish());
+    }
+
+    // 加载 FXML 文件，控件在场景显示前可以在任意线程创建
+    private Parent loadInterface() {
+        StartupTimer.Phase phase = StartupTimer.begin("fxml");
+        try {
+            return FXMLLoader.load(getClass().getResource("/Main.fxml"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            phase.end();
         }
     }
 
 
     public static void main(String[] args) {
+        StartupTimer.milestone("main");
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -1,34 +1,52 @@
 package com.image;
 
 import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.beans.value.ChangeListener;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Alert;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.DragEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.HBox;
 import javafx.concurrent.Task;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.util.StringConverter;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
-import java.util.zip.ZipFile;
-import javax.imageio.ImageIO;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainController {
 
+    // 在耗时标签中显示的非算子操作
+    private static final Set<String> USER_OPERATIONS = Set.of("load", "crop", "export", "result-cache.hit");
+
     // 图像处理相关属性
     private String suffix;
-    private Stack<Image> imageHistory = new Stack<>(); // 用于撤销
+    private final ImageHistoryManager history = new ImageHistoryManager(); // 用于撤销与重做
     private Task<?> currentTask; // 当前正在运行的任务
+    private ZipImageSource zipSource; // 当前浏览的 zip 图像源
+    private int zipIndex; // 当前显示的 zip 条目序号
+    private File zipFile; // 当前浏览的 zip 文件
+    private LivePreview preview; // 拖动强度滑块时的实时预览
+    private Image model; // 当前处理的全分辨率图像，视图中显示的可能是其缩小层级
+    private DisplayPyramid pyramid; // model 的显示金字塔
+    private Object loading; // 正在进行的后台加载（Image 或 Task），用于丢弃过期的结果
+    private Image loadingPreview; // JavaFX 路径中与 loading 同时后台加载的预览
+    private String hintText; // imageLabel 的默认提示
 
     // FXML 绑定的组件
     @FXML
@@ -41,15 +59,127 @@ public class MainController {
     private Slider strengthSlider;
     @FXML
     private Label imageLabel;
+    @FXML
+    private ComboBox<ImageOperator> operatorBox;
+    @FXML
+    private CheckBox livePreviewBox;
+    @FXML
+    private HBox archiveBar;
+    @FXML
+    private Slider jpegQualitySlider;
+    @FXML
+    private Slider pngCompressionSlider;
+    @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private Label archiveLabel;
+    @FXML
+    private Label metricsLabel;
 
     // 裁剪区域的坐标
     private double startX, startY, endX, endY;
 
+    // 正在显示进度的后台任务，按启动顺序排列，进度条绑定最后一个
+    private record ProgressEntry(Task<?> task, String message) {
+    }
+
+    private final List<ProgressEntry> progressTasks = new ArrayList<>();
+
     // 初始化方法
     @FXML
     public void initialize() {
         System.out.println("MainController initialized");
         selectionRect.setVisible(false); // 初始化时隐藏裁剪矩形
+        hintText = imageLabel.getText();
+
+        // 从注册表加载所有可用算子
+        operatorBox.getItems().setAll(OperatorRegistry.getAll());
+        operatorBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(ImageOperator operator) {
+                return operator == null ? "" : operator.getDisplayName();
+            }
+
+            @Override
+            public ImageOperator fromString(String name) {
+                return null;
+            }
+        });
+        operatorBox.getSelectionModel().select(OperatorRegistry.get(OperatorRegistry.SOBEL));
+
+        // 勾选实时预览后，强度或算子变化时在缩小的代理图像上预览结果
+        preview = new LivePreview(imageView);
+        livePreviewBox.selectedProperty().addListener((observable, oldValue, selected) -> {
+            if (selected && model != null) {
+                // 以当前显示的层级作为预览来源，其尺寸已不小于显示尺寸
+                preview.start(imageView.getImage());
+                refreshPreview();
+            } else {
+                endPreview();
+            }
+        });
+        strengthSlider.valueProperty().addListener((observable, oldValue, newValue) -> refreshPreview());
+        operatorBox.valueProperty().addListener((observable, oldValue, newValue) -> refreshPreview());
+
+        // 视图尺寸变化时重新选择显示层级
+        imageView.fitWidthProperty().addListener((observable, oldValue, newValue) -> refreshDisplay());
+        imageView.fitHeightProperty().addListener((observable, oldValue, newValue) -> refreshDisplay());
+
+        // 显示最近一次用户操作的耗时，其后到达的后台样本（压缩、金字塔、哈希等）不会覆盖它
+        ImageMetrics.addListener(sample -> {
+            if (isUserOperation(sample.operation())) {
+                Platform.runLater(() -> metricsLabel.setText(sample
+                        + "  |  result cache " + ResultCache.shared().getHits() + " hits, "
+                        + ResultCache.shared().getMisses() + " misses"));
+            }
+        });
+    }
+
+    // 由用户直接触发的操作：加载、裁剪、导出、算子（含缓存命中与实时预览）
+    private static boolean isUserOperation(String operation) {
+        if (USER_OPERATIONS.contains(operation) || operation.startsWith("preview.")) {
+            return true;
+        }
+        return OperatorRegistry.getAll().stream().anyMatch(operator -> operator.getId().equals(operation));
+    }
+
+    private void refreshPreview() {
+        if (preview.isActive()) {
+            preview.update(operatorBox.getValue(), (int) strengthSlider.getValue());
+        }
+    }
+
+    // 退出预览并恢复显示原图，其余操作都作用于原图
+    private void endPreview() {
+        if (preview.isActive()) {
+            preview.stop();
+            livePreviewBox.setSelected(false);
+            refreshDisplay();
+        }
+    }
+
+    // 设置当前图像，并在后台生成显示金字塔，生成后切换到合适的层级
+    private void showImage(Image image) {
+        model = image;
+        imageView.setImage(image);
+        if (image == null) {
+            pyramid = null;
+            return;
+        }
+        pyramid = DisplayPyramid.build(image, () -> {
+            if (pyramid != null && pyramid.getSource() == image) {
+                refreshDisplay();
+            }
+        });
+    }
+
+    // 按视图尺寸显示金字塔中最接近的层级，预览期间不替换预览画面
+    private void refreshDisplay() {
+        if (pyramid != null && !preview.isActive()) {
+            imageView.setImage(ImageResizeUtils.displayLevel(pyramid, imageView));
+        }
     }
 
     // 图像拖拽进入检测
@@ -121,17 +251,19 @@ public class MainController {
      */
     @FXML
     private void cropImage(ActionEvent event) {
-        if (imageView.getImage() == null) {
+        endPreview();
+        if (model == null) {
             showAlert("No image loaded!");
             return;
         }
 
-        // 使用 ImageUtils 进行裁剪
-        Image croppedImage = ImageUtils.cropImage(imageView, startX, startY, endX, endY);
+        // 使用 ImageUtils 在全分辨率图像上裁剪
+        Image croppedImage = ImageUtils.cropImage(imageView, model, startX, startY, endX, endY);
 
         if (croppedImage != null) {
+            saveHistory(model); // 存储裁剪前的图像状态
             // 更新 ImageView 显示裁剪后的图像
-            imageView.setImage(croppedImage);
+            showImage(croppedImage);
             selectionRect.setVisible(false); // 隐藏裁剪框
             showAlert("Image cropped successfully!");
         } else {
@@ -142,53 +274,167 @@ public class MainController {
     // 导出图像
     @FXML
     private void exportNewImage(ActionEvent event) {
-        if (imageView.getImage() == null) {
+        endPreview();
+        if (model == null) {
             showAlert("No image to export!");
             return;
         }
-        ImageExportUtils.exportImage(imagePane, suffix); // 使用工具类进行导出
+        if (suffix == null || suffix.isEmpty()) {
+            showAlert("Invalid file extension!");
+            return;
+        }
+
+        // 弹出选择导出目录对话框
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        File directory = directoryChooser.showDialog(imagePane.getScene().getWindow());
+        if (directory == null) {
+            showAlert("No directory selected.");
+            return;
+        }
+        File file = new File(directory, "exportedImage." + suffix);
+
+        // 以原始分辨率在后台编码
+        ImageExportUtils.ExportOptions options = ImageExportUtils.ExportOptions.nativeSize(
+                (float) (jpegQualitySlider.getValue() / 100), (int) pngCompressionSlider.getValue());
+        Task<File> task = ImageExportUtils.exportImage(model, file, suffix, options);
+        showProgress(task, "Exporting...");
+        task.setOnSucceeded(workerStateEvent -> {
+            hideProgress(task);
+            showAlert("Image exported successfully to: " + task.getValue().getAbsolutePath());
+        });
+        task.setOnFailed(workerStateEvent -> {
+            hideProgress(task);
+            showAlert("File write error: " + task.getException().getMessage());
+        });
+    }
+
+    // 在进度条中显示后台任务的进度；多个任务同时运行时显示最近启动的一个
+    private void showProgress(Task<?> task, String message) {
+        ProgressEntry entry = new ProgressEntry(task, message);
+        progressTasks.add(entry);
+        bindProgress(entry);
+    }
+
+    // 任务结束时调用：只有它正占用进度条时才切换到仍在运行的上一个任务，没有则隐藏
+    private void hideProgress(Task<?> task) {
+        boolean shown = !progressTasks.isEmpty() && progressTasks.get(progressTasks.size() - 1).task() == task;
+        progressTasks.removeIf(entry -> entry.task() == task);
+        if (!shown) {
+            return;
+        }
+        if (progressTasks.isEmpty()) {
+            progressBar.progressProperty().unbind();
+            progressBar.setVisible(false);
+            statusLabel.setText("");
+        } else {
+            bindProgress(progressTasks.get(progressTasks.size() - 1));
+        }
+    }
+
+    private void bindProgress(ProgressEntry entry) {
+        progressBar.progressProperty().bind(entry.task().progressProperty());
+        progressBar.setVisible(true);
+        statusLabel.setText(entry.message());
     }
 
     // 应用边缘检测算法
     @FXML
-    public void applyRobertsCross(ActionEvent event) { applyEdgeDetection("roberts"); }
+    public void applyRobertsCross(ActionEvent event) { applyEdgeDetection(OperatorRegistry.get(OperatorRegistry.ROBERTS)); }
     @FXML
-    public void applyLaplacian(ActionEvent event) { applyEdgeDetection("laplacian"); }
+    public void applyLaplacian(ActionEvent event) { applyEdgeDetection(OperatorRegistry.get(OperatorRegistry.LAPLACIAN)); }
     @FXML
-    public void applySobel(ActionEvent event) { applyEdgeDetection("sobel"); }
+    public void applySobel(ActionEvent event) { applyEdgeDetection(OperatorRegistry.get(OperatorRegistry.SOBEL)); }
+    @FXML
+    public void applyCanny(ActionEvent event) { applyEdgeDetection(OperatorRegistry.get(OperatorRegistry.CANNY)); }
+    @FXML
+    public void applySelectedOperator(ActionEvent event) {
+        ImageOperator operator = operatorBox.getValue();
+        if (operator == null) {
+            showAlert("No operator selected!");
+            return;
+        }
+        applyEdgeDetection(operator);
+    }
 
     // 应用边缘检测任务
-    private void applyEdgeDetection(String method) {
-        if (imageView.getImage() == null) {
+    private void applyEdgeDetection(ImageOperator operator) {
+        endPreview(); // 提交时才以全分辨率处理原图
+        Image source = model;
+        if (source == null) {
             showAlert("No image loaded!");
             return;
         }
+        // 取消仍在运行的上一次检测，其结果不会再被显示
         if (currentTask != null && currentTask.isRunning()) {
             currentTask.cancel();
         }
-        saveHistory(imageView.getImage()); // 存储历史图像状态
 
-        BufferedImage bufferedImage = SwingFXUtils.fromFXImage(imageView.getImage(), null);
         int strength = (int) strengthSlider.getValue();
-        EdgeDetectionTask task = new EdgeDetectionTask(bufferedImage, method, strength);
+        // 存在选择框时只处理选中的区域
+        Rectangle2D region = selectionRect.isVisible()
+                ? ImageUtils.toImageRegion(imageView, source, startX, startY, endX, endY) : null;
+        EdgeDetectionTask task = new EdgeDetectionTask(source, operator, strength, region);
         currentTask = task;
+        showProgress(task, operator.getDisplayName() + "...");
 
-        task.setOnSucceeded(workerStateEvent -> imageView.setImage(task.getValue()));
-        task.setOnFailed(workerStateEvent -> showAlert("Edge detection failed!"));
-        new Thread(task).start();
+        task.setOnSucceeded(workerStateEvent -> {
+            hideProgress(task);
+            // 只应用最新一次任务的结果，且显示的图像未被其他操作替换
+            if (task != currentTask || model != source) {
+                return;
+            }
+            saveHistory(source); // 存储历史图像状态
+            showImage(task.getValue());
+        });
+        task.setOnFailed(workerStateEvent -> {
+            hideProgress(task);
+            if (task == currentTask) {
+                showAlert("Edge detection failed!");
+            }
+        });
+        task.setOnCancelled(workerStateEvent -> hideProgress(task));
+        ImageExecutors.shared().execute(task);
+    }
+
+    // 将累计的操作耗时统计写入文本文件
+    @FXML
+    private void dumpMetrics(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setInitialFileName("image-metrics.txt");
+        File file = fileChooser.showSaveDialog(imagePane.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            ImageMetrics.dump(file.toPath());
+            showAlert("Metrics written to: " + file.getAbsolutePath());
+        } catch (IOException e) {
+            showAlert("File write error: " + e.getMessage());
+        }
     }
 
     // 保存历史记录
     private void saveHistory(Image image) {
-        imageHistory.push(image);
+        history.saveState(image);
     }
 
     // 撤销操作
     @FXML
     private void undoAction(ActionEvent event) {
-        if (!imageHistory.isEmpty()) {
-            Image previousImage = imageHistory.pop();
-            imageView.setImage(previousImage);
+        endPreview();
+        Image previousImage = history.undo(model);
+        if (previousImage != null) {
+            showImage(previousImage);
+        }
+    }
+
+    // 重做操作
+    @FXML
+    private void redoAction(ActionEvent event) {
+        endPreview();
+        Image nextImage = history.redo(model);
+        if (nextImage != null) {
+            showImage(nextImage);
         }
     }
 
@@ -210,28 +456,243 @@ public class MainController {
 
     // 加载图像文件
     private void loadImageFromFile(File file) {
-        List<Image> images = new ArrayList<>();
-        try {
-            if (suffix.equals("zip")) {
-                ZipFile zipFile = new ZipFile(file);
-                zipFile.stream().forEach(entry -> {
-                    try {
-                        Image image = new Image(zipFile.getInputStream(entry));
-                        if (image.getWidth() > 0 && image.getHeight() > 0) {
-                            images.add(image);
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
+        endPreview();
+        closeArchive();
+        cancelLoading();
+        if (suffix.equals("zip")) {
+            try {
+                // 只索引条目，图像在浏览时才于后台解码
+                zipSource = ZipImageSource.open(file);
+                zipFile = file;
+            } catch (IOException e) {
+                showAlert("Error loading image file: " + e.getMessage());
+                return;
+            }
+            if (zipSource.size() == 0) {
+                showAlert("No images found in archive: " + file.getName());
+                closeArchive();
+                return;
+            }
+            archiveBar.setVisible(true);
+            showArchiveEntry(0);
+        } else {
+            loadInBackground(file);
+        }
+    }
+
+    /**
+     * 在后台解码图像：先显示按视图尺寸缩小解码的预览，全分辨率图像解码完成后再替换，
+     * 期间在 imageLabel 中显示加载进度。解码完成前没有可处理的图像。
+     */
+    private void loadInBackground(File file) {
+        double outputScale = imagePane.getScene() != null && imagePane.getScene().getWindow() != null
+                ? imagePane.getScene().getWindow().getOutputScaleX() : 1;
+        double previewWidth = imageView.getFitWidth() * outputScale;
+        double previewHeight = imageView.getFitHeight() * outputScale;
+        ImageMetrics.Timer timer = ImageMetrics.start("load");
+
+        model = null;
+        pyramid = null;
+        history.clear(); // 新图像开始新的历史
+        imageView.setImage(null);
+        imageLabel.setText("Loading 0%");
+        if (ImageDecoder.isFxSupported(file.getName())) {
+            loadWithFx(file, previewWidth, previewHeight, timer);
+        } else {
+            loadWithImageIO(file, previewWidth, previewHeight, timer);
+        }
+    }
+
+    // JavaFX 支持的格式：两个后台加载的 Image，预览按请求尺寸解码
+    private void loadWithFx(File file, double previewWidth, double previewHeight, ImageMetrics.Timer timer) {
+        String url = file.toURI().toString();
+        Image preview = new Image(url, previewWidth, previewHeight, true, true, true);
+        Image full = new Image(url, true);
+        imageView.setImage(preview);
+        loading = full;
+        loadingPreview = preview;
+
+        // 进度、宽、高的设置顺序不确定，任一变化时都检查是否已全部就绪
+        ChangeListener<Object> listener = (observable, oldValue, newValue) -> {
+            if (loading != full) {
+                return;
+            }
+            if (full.isError()) {
+                loadFailed(file);
+            } else if (full.getProgress() >= 1 && full.getWidth() > 0 && full.getHeight() > 0) {
+                loadFinished(full, timer);
+            } else {
+                imageLabel.setText(String.format("Loading %.0f%%", full.getProgress() * 100));
+            }
+        };
+        full.progressProperty().addListener(listener);
+        full.widthProperty().addListener(listener);
+        full.heightProperty().addListener(listener);
+        full.errorProperty().addListener(listener);
+    }
+
+    // 其他格式（如 TIFF）：在共享线程池中经 ImageIO 先子采样解码预览，再解码全分辨率图像
+    private void loadWithImageIO(File file, double previewWidth, double previewHeight, ImageMetrics.Timer timer) {
+        Task<Image> task = new Task<>() {
+            @Override
+            protected Image call() throws Exception {
+                Image preview = ImageDecoder.decodePreview(file, previewWidth, previewHeight, this::isCancelled);
+                Platform.runLater(() -> {
+                    if (loading == this) {
+                        imageView.setImage(preview);
                     }
                 });
-            } else {
-                Image image = new Image("file:" + file.getAbsolutePath());
-                images.add(image);
+                return ImageDecoder.decodeFull(file, this::isCancelled, progress -> updateProgress(progress, 1));
             }
-        } catch (IOException e) {
-            showAlert("Error loading image file: " + e.getMessage());
+        };
+        loading = task;
+        task.progressProperty().addListener((observable, oldValue, progress) -> {
+            if (loading == task) {
+                imageLabel.setText(String.format("Loading %.0f%%", Math.max(0, progress.doubleValue()) * 100));
+            }
+        });
+        task.setOnSucceeded(event -> {
+            if (loading == task) {
+                loadFinished(task.getValue(), timer);
+            }
+        });
+        task.setOnFailed(event -> {
+            if (loading == task) {
+                loadFailed(file);
+            }
+        });
+        ImageExecutors.shared().execute(task);
+    }
+
+    private void loadFinished(Image image, ImageMetrics.Timer timer) {
+        loading = null;
+        loadingPreview = null;
+        timer.stop((long) image.getWidth() * (long) image.getHeight());
+        imageLabel.setText(hintText);
+        showImage(image);
+    }
+
+    private void loadFailed(File file) {
+        loading = null;
+        loadingPreview = null;
+        imageLabel.setText(hintText);
+        imageView.setImage(null);
+        showAlert("Error loading image file: " + file.getName());
+    }
+
+    // 放弃尚未完成的后台加载；ImageIO 解码由任务的取消状态中止，已完成的 Image 不受 cancel 影响
+    private void cancelLoading() {
+        if (loading instanceof Image image) {
+            image.cancel();
+        } else if (loading instanceof Task<?> task) {
+            task.cancel();
+        }
+        if (loadingPreview != null) {
+            loadingPreview.cancel();
+            loadingPreview = null;
+        }
+        if (loading != null) {
+            loading = null;
+            imageLabel.setText(hintText);
+        }
+    }
+
+    // 显示 zip 中的上一张图像
+    @FXML
+    private void previousArchiveEntry(ActionEvent event) {
+        if (zipSource != null && zipIndex > 0) {
+            showArchiveEntry(zipIndex - 1);
+        }
+    }
+
+    // 显示 zip 中的下一张图像
+    @FXML
+    private void nextArchiveEntry(ActionEvent event) {
+        if (zipSource != null && zipIndex < zipSource.size() - 1) {
+            showArchiveEntry(zipIndex + 1);
+        }
+    }
+
+    // 异步加载 zip 条目，只有仍为当前条目时才显示
+    private void showArchiveEntry(int index) {
+        ZipImageSource source = zipSource;
+        zipIndex = index;
+        String name = source.getEntryName(index);
+        archiveLabel.setText((index + 1) + " / " + source.size() + "  Loading " + name + "...");
+        source.load(index).whenComplete((image, error) -> Platform.runLater(() -> {
+            if (source != zipSource || index != zipIndex) {
+                return;
+            }
+            archiveLabel.setText((index + 1) + " / " + source.size() + "  " + name);
+            if (error != null) {
+                showAlert("Error loading image file: " + name);
+                return;
+            }
+            endPreview();
+            suffix = getFileSuffix(name); // 导出时沿用条目自身的格式
+            showImage(image);
+            history.clear(); // 新图像开始新的历史
+        }));
+    }
+
+    // 对当前 zip 中的所有图像应用所选算子，结果按原顺序写入新的 zip
+    @FXML
+    private void processArchive(ActionEvent event) {
+        File input = zipFile;
+        ImageOperator operator = operatorBox.getValue();
+        if (zipSource == null || input == null) {
+            showAlert("No archive loaded!");
+            return;
+        }
+        if (operator == null) {
+            showAlert("No operator selected!");
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setInitialFileName(input.getName().replaceFirst("(?i)\\.zip$", "") + "_" + operator.getId() + ".zip");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip archives", "*.zip"));
+        File output = fileChooser.showSaveDialog(imagePane.getScene().getWindow());
+        if (output == null) {
+            return;
+        }
+        if (output.equals(input)) {
+            showAlert("Choose a different file than the source archive!");
+            return;
+        }
+        int strength = (int) strengthSlider.getValue();
+        int total = zipSource.size();
+        Task<ZipBatchTransformer.Result> task = new Task<>() {
+            @Override
+            protected ZipBatchTransformer.Result call() throws Exception {
+                AtomicInteger done = new AtomicInteger();
+                return new ZipBatchTransformer(operator, strength, "png")
+                        .transform(input, output, this::isCancelled,
+                                entries -> updateProgress(done.addAndGet(entries), total));
+            }
+        };
+        showProgress(task, "Processing archive...");
+        task.setOnSucceeded(workerStateEvent -> {
+            hideProgress(task);
+            showAlert(task.getValue().summary() + "\nWritten to: " + output.getAbsolutePath());
+        });
+        task.setOnFailed(workerStateEvent -> {
+            hideProgress(task);
+            showAlert("Archive processing failed: " + task.getException().getMessage());
+        });
+        ImageExecutors.shared().execute(task);
+    }
+
+    // 关闭当前 zip 图像源并隐藏浏览栏
+    private void closeArchive() {
+        if (zipSource != null) {
+            try {
+                zipSource.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            zipSource = null;
+            zipFile = null;
         }
-        imageView.setImage(images.get(0));
-        saveHistory(imageView.getImage()); // 存储当前图像状态
+        archiveBar.setVisible(false);
     }
 }
@@ -0,0 +1,29 @@
+package com.image;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * 需要整幅图像信息的算子，例如 Canny 的滞后阈值连通或全局直方图阈值。
+ * <p>
+ * 这类算子的结果不只通过查找表依赖强度，因此 {@link EdgeDetectionTask} 与 {@link ImageAnalysisCache}
+ * 会调用 {@link #process} 而不是按行带调用 {@link #apply}，也不缓存其原始幅值平面。
+ * {@link #apply} 仍须满足行带约定，只计算算子中不依赖全局信息的部分。
+ */
+public interface MultiPassOperator extends ImageOperator {
+
+    /**
+     * 对整幅图像计算结果，可并行的步骤按行带交给 {@link ParallelBands}。
+     *
+     * @throws java.util.concurrent.CancellationException 若计算被取消
+     */
+    void process(PixelRaster source, int[] output, int strength, BooleanSupplier cancelled, IntConsumer progress);
+
+    /**
+     * {@link #process} 的结果是否只取决于每个像素 {@link #getRadius()} 范围内的邻域，
+     * 即能否按带光晕的瓦片分别计算后拼接，见 {@link TiledProcessor}。
+     */
+    default boolean isLocal() {
+        return false;
+    }
+}
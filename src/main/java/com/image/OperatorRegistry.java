@@ -0,0 +1,76 @@
+package com.image;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图像算子注册表，按注册顺序保存所有可用的 {@link ImageOperator}。
+ */
+public final class OperatorRegistry {
+
+    public static final String ROBERTS = "roberts";
+    public static final String LAPLACIAN = "laplacian";
+    public static final String SOBEL = "sobel";
+    public static final String SCHARR = "scharr";
+    public static final String SOBEL_5X5 = "sobel5";
+    public static final String GAUSSIAN_5X5 = "gaussian5";
+    public static final String GAUSSIAN_7X7 = "gaussian7";
+    public static final String SMOOTHED_SOBEL = "gaussian-sobel";
+    public static final String CANNY = "canny";
+    public static final String OTSU = "otsu";
+    public static final String ADAPTIVE = "adaptive";
+
+    private static final Map<String, ImageOperator> OPERATORS = new LinkedHashMap<>();
+
+    static {
+        // 3x3 模板在向量模块可用时使用 SIMD 实现
+        register(VectorSupport.accelerate(new RobertsCrossOperator()));
+        register(VectorSupport.accelerate(ConvolutionOperator.laplacian()));
+        register(VectorSupport.accelerate(ConvolutionOperator.sobel()));
+        register(new ConvolutionOperator(SCHARR, "Scharr",
+                ConvolutionKernel.separable(new int[]{-1, 0, 1}, new int[]{3, 10, 3}),
+                ConvolutionKernel.separable(new int[]{3, 10, 3}, new int[]{-1, 0, 1}), 4));
+        register(new ConvolutionOperator(SOBEL_5X5, "Sobel 5x5",
+                ConvolutionKernel.separable(new int[]{-1, -2, 0, 2, 1}, new int[]{1, 4, 6, 4, 1}),
+                ConvolutionKernel.separable(new int[]{1, 4, 6, 4, 1}, new int[]{-1, -2, 0, 2, 1}), 12));
+        register(new ConvolutionOperator(GAUSSIAN_5X5, "Gaussian 5x5",
+                ConvolutionKernel.separable(new int[]{1, 4, 6, 4, 1}, new int[]{1, 4, 6, 4, 1}), 256));
+        register(new ConvolutionOperator(GAUSSIAN_7X7, "Gaussian 7x7",
+                ConvolutionKernel.separable(new int[]{1, 6, 15, 20, 15, 6, 1}, new int[]{1, 6, 15, 20, 15, 6, 1}), 4096));
+        // 先做高斯去噪再求 Sobel 梯度，两步在一次遍历中完成
+        register(FilterPipeline.of(SMOOTHED_SOBEL, "Gaussian + Sobel",
+                FilterPipeline.Stage.convolve(
+                        ConvolutionKernel.separable(new int[]{1, 4, 6, 4, 1}, new int[]{1, 4, 6, 4, 1}), 256),
+                FilterPipeline.Stage.gradient(
+                        ConvolutionKernel.separable(new int[]{-1, 0, 1}, new int[]{1, 2, 1}),
+                        ConvolutionKernel.separable(new int[]{1, 2, 1}, new int[]{-1, 0, 1}), 1)));
+        register(new CannyOperator());
+        register(new OtsuThresholdOperator());
+        register(new AdaptiveThresholdOperator());
+    }
+
+    private OperatorRegistry() {
+    }
+
+    // 注册算子，相同标识的算子会被替换
+    public static synchronized void register(ImageOperator operator) {
+        OPERATORS.put(operator.getId(), operator);
+    }
+
+    // 按标识查找算子
+    public static synchronized ImageOperator get(String id) {
+        ImageOperator operator = OPERATORS.get(id);
+        if (operator == null) {
+            throw new IllegalArgumentException("Unknown image operator: " + id);
+        }
+        return operator;
+    }
+
+    // 所有已注册的算子，按注册顺序排列
+    public static synchronized List<ImageOperator> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(OPERATORS.values()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.image;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Otsu 全局阈值：由亮度直方图选取使类间方差最大的阈值，将图像二值化。
+ * <p>
+ * 直方图按行带并行统计，每个行带写自己的局部直方图后再合并。
+ * 强度 50 时使用 Otsu 阈值本身，强度越大阈值越低、白色区域越多。
+ */
+public class OtsuThresholdOperator implements MultiPassOperator {
+
+    private static final int LEVELS = 256;
+
+    @Override
+    public String getId() {
+        return OperatorRegistry.OTSU;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Otsu Threshold";
+    }
+
+    @Override
+    public int getRadius() {
+        return 0;
+    }
+
+    // 行带版本只用行带自身的直方图求阈值，结果经查找表输出
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        long[] histogram = new long[LEVELS];
+        accumulate(source.getGray(), histogram, rowStart * source.getWidth(), rowEnd * source.getWidth());
+        int threshold = threshold(histogram);
+        binarize(source, output, rowStart, rowEnd, threshold, EdgeLut.map(lut, 255), EdgeLut.map(lut, 0));
+    }
+
+    @Override
+    public void process(PixelRaster source, int[] output, int strength, BooleanSupplier cancelled, IntConsumer progress) {
+        int height = source.getHeight();
+        int threshold = threshold(histogram(source, cancelled), strength);
+        int white = PixelRaster.grayArgb(255);
+        int black = PixelRaster.grayArgb(0);
+        ParallelBands.forEach(0, height,
+                (rowStart, rowEnd) -> binarize(source, output, rowStart, rowEnd, threshold, white, black),
+                cancelled, progress);
+    }
+
+    // 整幅图像的亮度直方图，按行带并行归约；计数用 long，分块处理的超大图像也不会溢出
+    static long[] histogram(PixelRaster source, BooleanSupplier cancelled) {
+        int width = source.getWidth();
+        return ParallelBands.reduce(0, source.getHeight(), () -> new long[LEVELS],
+                (partial, rowStart, rowEnd) -> accumulate(source.getGray(), partial, rowStart * width, rowEnd * width),
+                (total, partial) -> {
+                    for (int i = 0; i < LEVELS; i++) {
+                        total[i] += partial[i];
+                    }
+                    return total;
+                }, cancelled, rows -> { });
+    }
+
+    // 统计亮度平面 [from, to) 区间内的像素
+    static void accumulate(byte[] gray, long[] histogram, int from, int to) {
+        for (int i = from; i < to; i++) {
+            histogram[gray[i] & 0xff]++;
+        }
+    }
+
+    // 按强度调整后的阈值：强度 50 时为 Otsu 阈值本身
+    static int threshold(long[] histogram, int strength) {
+        return Math.min(LEVELS - 1, threshold(histogram) * 50 / Math.max(1, strength));
+    }
+
+    /**
+     * 使类间方差最大的阈值 t：不大于 t 的像素为背景，大于 t 的为前景。
+     * 直方图为空或只有一个灰度级时返回该灰度级。
+     */
+    static int threshold(long[] histogram) {
+        long total = 0;
+        long sum = 0;
+        for (int i = 0; i < LEVELS; i++) {
+            total += histogram[i];
+            sum += (long) i * histogram[i];
+        }
+        long background = 0;
+        long backgroundSum = 0;
+        double best = -1;
+        int threshold = 0;
+        for (int t = 0; t < LEVELS; t++) {
+            background += histogram[t];
+            backgroundSum += (long) t * histogram[t];
+            long foreground = total - background;
+            if (background == 0) {
+                continue;
+            }
+            if (foreground == 0) {
+                break;
+            }
+            double meanBackground = (double) backgroundSum / background;
+            double meanForeground = (double) (sum - backgroundSum) / foreground;
+            double difference = meanBackground - meanForeground;
+            double variance = (double) background * foreground * difference * difference;
+            if (variance > best) {
+                best = variance;
+                threshold = t;
+            }
+        }
+        if (best < 0) {
+            // 只有一个灰度级
+            for (int t = 0; t < LEVELS; t++) {
+                if (histogram[t] > 0) {
+                    return t;
+                }
+            }
+        }
+        return threshold;
+    }
+
+    private static void binarize(PixelRaster source, int[] output, int rowStart, int rowEnd,
+                                 int threshold, int white, int black) {
+        byte[] gray = source.getGray();
+        int width = source.getWidth();
+        for (int i = rowStart * width; i < rowEnd * width; i++) {
+            output[i] = (gray[i] & 0xff) > threshold ? white : black;
+        }
+    }
+}
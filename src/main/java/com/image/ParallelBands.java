@@ -0,0 +1,170 @@
+package com.image;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 将图像按行带（row band）拆分，在共享的 {@link ForkJoinPool} 上并行执行。
+ * <p>
+ * 每个行带只写入自己负责的输出行，而卷积所需的上下光晕（halo）行直接从只读的源平面读取，
+ * 因此拼接后的结果没有接缝，与串行执行逐位一致。
+ * 并行度可通过系统属性 {@code image.parallelism} 或 {@link #setParallelism(int)} 配置，设为 1 即为串行路径。
+ * <p>
+ * 调用方可传入取消检查与进度回调：每个行带开始前检查是否已取消，完成后报告处理的行数。
+ */
+public final class ParallelBands {
+
+    // 行带的最小行数，过小的任务调度开销大于计算量
+    private static final int MIN_BAND_ROWS = 16;
+    // 串行执行时的行带行数，兼顾取消的响应速度与光晕行的重复计算
+    private static final int SERIAL_BAND_ROWS = 256;
+    // 每个线程分配的行带数，用于负载均衡
+    private static final int BANDS_PER_THREAD = 4;
+
+    private static int parallelism = Math.max(1,
+            Integer.getInteger("image.parallelism", Runtime.getRuntime().availableProcessors()));
+    private static ForkJoinPool pool;
+
+    private ParallelBands() {
+    }
+
+    // 处理行区间 [rowStart, rowEnd) 的回调
+    @FunctionalInterface
+    public interface BandAction {
+        void run(int rowStart, int rowEnd);
+    }
+
+    // 将行区间 [rowStart, rowEnd) 的结果累加到行带自己的局部结果中
+    @FunctionalInterface
+    public interface BandAccumulator<T> {
+        void accumulate(T partial, int rowStart, int rowEnd);
+    }
+
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    // 修改并行度；旧线程池不主动关闭，以免正在提交的任务被拒绝，其空闲线程会自行回收
+    public static synchronized void setParallelism(int level) {
+        if (level < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + level);
+        }
+        if (level != parallelism) {
+            parallelism = level;
+            pool = null;
+        }
+    }
+
+    // 不需要取消与进度时使用
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final IntConsumer NO_PROGRESS = rows -> { };
+
+    // 对行区间 [rowStart, rowEnd) 按行带执行 action，返回时所有行带均已完成
+    public static void forEach(int rowStart, int rowEnd, BandAction action) {
+        forEach(rowStart, rowEnd, action, NEVER_CANCELLED, NO_PROGRESS);
+    }
+
+    /**
+     * 与 {@link #forEach(int, int, BandAction)} 相同，但在每个行带开始前检查 cancelled，
+     * 并在每个行带完成后以其行数调用 progress（可能在任意工作线程上调用）。
+     *
+     * @throws CancellationException 若执行期间被取消，此时输出只完成了部分行带
+     */
+    public static void forEach(int rowStart, int rowEnd, BandAction action,
+                               BooleanSupplier cancelled, IntConsumer progress) {
+        BandAction monitored = (start, end) -> {
+            if (!cancelled.getAsBoolean()) {
+                action.run(start, end);
+                progress.accept(end - start);
+            }
+        };
+        run(rowStart, rowEnd, monitored);
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * 并行归约：每个行带在 identity 创建的局部结果上独立累加，不共享可变状态，
+     * 行带完成后用 combine 合并，合并次数只与行带数有关。
+     *
+     * @throws CancellationException 若执行期间被取消
+     */
+    public static <T> T reduce(int rowStart, int rowEnd, Supplier<T> identity, BandAccumulator<T> accumulator,
+                               BinaryOperator<T> combine, BooleanSupplier cancelled, IntConsumer progress) {
+        Object lock = new Object();
+        Object[] result = {identity.get()};
+        forEach(rowStart, rowEnd, (start, end) -> {
+            T partial = identity.get();
+            accumulator.accumulate(partial, start, end);
+            synchronized (lock) {
+                @SuppressWarnings("unchecked")
+                T total = (T) result[0];
+                result[0] = combine.apply(total, partial);
+            }
+        }, cancelled, progress);
+        @SuppressWarnings("unchecked")
+        T total = (T) result[0];
+        return total;
+    }
+
+    private static void run(int rowStart, int rowEnd, BandAction action) {
+        int rows = rowEnd - rowStart;
+        if (rows <= 0) {
+            return;
+        }
+        ForkJoinPool executor;
+        int level;
+        synchronized (ParallelBands.class) {
+            level = parallelism;
+            if (level > 1 && pool == null) {
+                pool = new ForkJoinPool(level);
+            }
+            executor = pool;
+        }
+        if (level == 1 || rows <= MIN_BAND_ROWS) {
+            // 串行时同样按行带执行，以便及时响应取消
+            for (int start = rowStart; start < rowEnd; start += SERIAL_BAND_ROWS) {
+                action.run(start, Math.min(rowEnd, start + SERIAL_BAND_ROWS));
+            }
+            return;
+        }
+        int bandRows = Math.max(MIN_BAND_ROWS, (rows + level * BANDS_PER_THREAD - 1) / (level * BANDS_PER_THREAD));
+        executor.invoke(new BandTask(rowStart, rowEnd, bandRows, action));
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int rowStart;
+        private final int rowEnd;
+        private final int bandRows;
+        // 任务只在本进程的线程池中执行，从不序列化
+        private final transient BandAction action;
+
+        BandTask(int rowStart, int rowEnd, int bandRows, BandAction action) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.bandRows = bandRows;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart <= bandRows) {
+                action.run(rowStart, rowEnd);
+                return;
+            }
+            // 以行带为单位二分，保证切分点落在行带边界
+            int bands = (rowEnd - rowStart + bandRows - 1) / bandRows;
+            int middle = rowStart + (bands / 2) * bandRows;
+            invokeAll(new BandTask(rowStart, middle, bandRows, action),
+                    new BandTask(middle, rowEnd, bandRows, action));
+        }
+    }
+}
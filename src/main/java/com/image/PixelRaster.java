@@ -0,0 +1,220 @@
+package com.image;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * 基于原始数组的像素访问层。
+ * <p>
+ * 输入图像被读取为一张紧凑的 {@code byte[]} 亮度平面（按 BT.601 权重由 RGB 三通道计算，灰度图像的取值与原通道相同），
+ * 输出直接写入 {@link BufferedImage#TYPE_INT_ARGB} 的底层 {@code int[]}，内层循环中不再产生任何对象分配。
+ */
+public final class PixelRaster {
+
+    private final int width;
+    private final int height;
+    private final byte[] gray;
+
+    private PixelRaster(int width, int height, byte[] gray) {
+        this.width = width;
+        this.height = height;
+        this.gray = gray;
+    }
+
+    // 从 BufferedImage 构建灰度平面
+    public static PixelRaster of(BufferedImage image) {
+        return fromArgb(readArgb(image), image.getWidth(), image.getHeight());
+    }
+
+    // 分块读取 JavaFX 图像时每块的行数
+    private static final int READ_CHUNK_ROWS = 64;
+
+    /**
+     * 从 JavaFX 图像构建灰度平面。由 {@link PixelSurface} 支持的图像直接读取其像素数组，
+     * 其他图像按行块经 {@link PixelReader} 读取，不会生成整图的 ARGB 副本。
+     */
+    public static PixelRaster of(Image image) {
+        return of(image, 0, 0, (int) image.getWidth(), (int) image.getHeight());
+    }
+
+    // 只读取图像中的一个矩形区域，代价与区域面积成正比
+    public static PixelRaster of(Image image, int x, int y, int width, int height) {
+        byte[] gray = new byte[width * height];
+        PixelSurface surface = PixelSurface.of(image);
+        if (surface != null) {
+            int[] argb = surface.getPixels();
+            for (int row = 0; row < height; row++) {
+                int from = (y + row) * surface.getWidth() + x;
+                int to = row * width;
+                for (int i = 0; i < width; i++) {
+                    gray[to + i] = (byte) luma(unpremultiply(argb[from + i]));
+                }
+            }
+            return new PixelRaster(width, height, gray);
+        }
+        int[] chunk = new int[width * Math.min(READ_CHUNK_ROWS, Math.max(1, height))];
+        PixelReader reader = image.getPixelReader();
+        for (int row = 0; row < height; row += READ_CHUNK_ROWS) {
+            int rows = Math.min(READ_CHUNK_ROWS, height - row);
+            reader.getPixels(x, y + row, width, rows, PixelFormat.getIntArgbInstance(), chunk, 0, width);
+            int offset = row * width;
+            for (int i = 0; i < rows * width; i++) {
+                gray[offset + i] = (byte) luma(chunk[i]);
+            }
+        }
+        return new PixelRaster(width, height, gray);
+    }
+
+    /**
+     * 以区域平均的方式将图像缩小为指定尺寸的灰度平面，用于交互预览的代理图像。
+     * 源图像按行读取一遍，内存占用只与目标尺寸和单行宽度有关。
+     */
+    public static PixelRaster downscale(Image image, int targetWidth, int targetHeight) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        PixelSurface surface = PixelSurface.of(image);
+        PixelReader reader = image.getPixelReader();
+
+        // 每个源列对应的目标列
+        int[] column = new int[width];
+        for (int x = 0; x < width; x++) {
+            column[x] = (int) ((long) x * targetWidth / width);
+        }
+        byte[] gray = new byte[targetWidth * targetHeight];
+        int[] row = new int[width];
+        long[] sums = new long[targetWidth];
+        int[] counts = new int[targetWidth];
+        int sourceY = 0;
+        for (int ty = 0; ty < targetHeight; ty++) {
+            int rowEnd = (int) ((long) (ty + 1) * height / targetHeight);
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (; sourceY < rowEnd; sourceY++) {
+                if (surface != null) {
+                    System.arraycopy(surface.getPixels(), sourceY * width, row, 0, width);
+                } else {
+                    reader.getPixels(0, sourceY, width, 1, PixelFormat.getIntArgbInstance(), row, 0, width);
+                }
+                for (int x = 0; x < width; x++) {
+                    sums[column[x]] += luma(surface != null ? unpremultiply(row[x]) : row[x]);
+                    counts[column[x]]++;
+                }
+            }
+            int offset = ty * targetWidth;
+            for (int tx = 0; tx < targetWidth; tx++) {
+                gray[offset + tx] = (byte) (counts[tx] == 0 ? 0 : sums[tx] / counts[tx]);
+            }
+        }
+        return new PixelRaster(targetWidth, targetHeight, gray);
+    }
+
+    // 直接使用已有的亮度平面，不做拷贝
+    public static PixelRaster fromGray(byte[] gray, int width, int height) {
+        if (gray.length < width * height) {
+            throw new IllegalArgumentException("Plane is smaller than " + width + "x" + height);
+        }
+        return new PixelRaster(width, height, gray);
+    }
+
+    // 从紧凑排列的 ARGB 数组构建亮度平面
+    public static PixelRaster fromArgb(int[] argb, int width, int height) {
+        int size = width * height;
+        byte[] gray = new byte[size];
+        for (int i = 0; i < size; i++) {
+            gray[i] = (byte) luma(argb[i]);
+        }
+        return new PixelRaster(width, height, gray);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // 亮度平面，按行存储，每个像素一个字节（无符号，读取时需 & 0xff）
+    public byte[] getGray() {
+        return gray;
+    }
+
+    /**
+     * 以紧凑的 ARGB 数组读取图像像素，结果与逐像素调用 {@link BufferedImage#getRGB(int, int)} 完全一致。
+     * 对于 TYPE_INT_ARGB 图像直接返回底层数组，不做拷贝。
+     */
+    public static int[] readArgb(BufferedImage image) {
+        int[] backing = backingArray(image);
+        if (backing != null) {
+            return backing;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    // 创建输出图像，并可通过 pixelsOf 直接写入
+    public static BufferedImage createArgbImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // 获取 TYPE_INT_ARGB 图像可写的底层像素数组
+    public static int[] pixelsOf(BufferedImage image) {
+        int[] backing = backingArray(image);
+        if (backing == null) {
+            throw new IllegalArgumentException("Image is not a packed TYPE_INT_ARGB raster");
+        }
+        return backing;
+    }
+
+    /**
+     * 将 {@link PixelSurface} 中的预乘像素还原为非预乘值，舍入方式与 JavaFX 的格式转换相同，
+     * 因此直接读取缓冲与经 {@link PixelReader} 读取得到的亮度一致。不透明与全透明像素原样返回。
+     */
+    static int unpremultiply(int argbPre) {
+        int alpha = argbPre >>> 24;
+        if (alpha == 0xff || alpha == 0) {
+            return argbPre;
+        }
+        int half = alpha >> 1;
+        int red = (((argbPre >> 16) & 0xff) * 0xff + half) / alpha;
+        int green = (((argbPre >> 8) & 0xff) * 0xff + half) / alpha;
+        int blue = ((argbPre & 0xff) * 0xff + half) / alpha;
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    // ARGB 像素的亮度，权重为 77/150/29（和为 256），R = G = B 时结果即为该值
+    public static int luma(int argb) {
+        return (((argb >> 16) & 0xff) * 77 + ((argb >> 8) & 0xff) * 150 + (argb & 0xff) * 29 + 128) >> 8;
+    }
+
+    // 灰度值打包为不透明的 ARGB 像素，等价于 new Color(v, v, v).getRGB()
+    public static int grayArgb(int value) {
+        return 0xff000000 | (value << 16) | (value << 8) | value;
+    }
+
+    // 仅当底层数组与 getRGB 语义一致且紧凑排列时才直接返回
+    private static int[] backingArray(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return null;
+        }
+        Raster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt buffer)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel)) {
+            return null;
+        }
+        if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0
+                || sampleModel.getScanlineStride() != image.getWidth()
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return null;
+        }
+        return buffer.getData();
+    }
+}
@@ -0,0 +1,78 @@
+package com.image;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.IntBuffer;
+
+/**
+ * 处理与显示共享的像素缓冲。
+ * <p>
+ * 像素保存在一个 {@code int[]}（INT_ARGB_PRE）中，经 {@link IntBuffer} 包装为 JavaFX {@link PixelBuffer}，
+ * 再作为 {@link WritableImage} 交给 {@code ImageView}。算子直接写入该数组，
+ * 写完后调用 {@link #markDirty()} 即可原地刷新显示，无需 SwingFXUtils 的格式转换和整图拷贝。
+ * <p>
+ * 算子输出的像素要么不透明、要么全为 0，预乘与非预乘格式的取值相同；但只处理区域时，
+ * 区域外从原图复制的像素可能半透明，以预乘形式保存，读取亮度时须先还原，见 {@link PixelRaster#of(Image)}。
+ */
+public final class PixelSurface {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final PixelBuffer<IntBuffer> buffer;
+    private final SurfaceImage image;
+
+    private PixelSurface(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        this.buffer = new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance());
+        this.image = new SurfaceImage(this);
+    }
+
+    // 创建全透明的缓冲，可在任意线程调用
+    public static PixelSurface create(int width, int height) {
+        return new PixelSurface(width, height);
+    }
+
+    // 若图像由 PixelSurface 支持则返回其缓冲，否则返回 null
+    public static PixelSurface of(Image image) {
+        return image instanceof SurfaceImage surfaceImage ? surfaceImage.surface : null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // 可直接写入的像素数组，按行存储，INT_ARGB_PRE 格式
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    // 以本缓冲为像素来源的图像
+    public WritableImage getImage() {
+        return image;
+    }
+
+    // 通知 JavaFX 像素已修改，必须在 FX 线程上调用
+    public void markDirty() {
+        buffer.updateBuffer(pixelBuffer -> null);
+    }
+
+    // 由 PixelSurface 支持的图像，用于在处理链路中识别并直接复用其像素数组
+    private static final class SurfaceImage extends WritableImage {
+        private final PixelSurface surface;
+
+        SurfaceImage(PixelSurface surface) {
+            super(surface.buffer);
+            this.surface = surface;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.image;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 按内容寻址的算子结果缓存：键为（源图像内容哈希、算子、强度、区域），值为结果图像。
+ * <p>
+ * 与按对象身份缓存的 {@link ImageAnalysisCache} 不同，撤销后得到的是内容相同的新图像对象时也能命中，
+ * 因此在同一图像上切换算子或重复同一操作时直接返回之前的结果。
+ * 内容哈希按图像对象记忆，同一对象只计算一次；缓存按字节预算淘汰，默认预算可通过 {@code image.resultBytes} 调整。
+ * 结果图像与界面共享，调用方不得修改其像素。
+ */
+public final class ResultCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = Long.getLong("image.resultBytes", 256L * 1024 * 1024);
+
+    private static final ResultCache SHARED = new ResultCache(DEFAULT_BUDGET_BYTES);
+
+    private final LruCache<Key, Image> results;
+    // 图像对象到内容哈希的记忆，图像被回收后自动移除
+    private final Map<Image, Long> hashes = new WeakHashMap<>();
+
+    public ResultCache(long budgetBytes) {
+        this.results = new LruCache<>(budgetBytes, image -> (long) image.getWidth() * (long) image.getHeight() * 4);
+    }
+
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 结果的缓存键，region 为 null 表示整幅图像。
+     *
+     * @throws java.util.concurrent.CancellationException 若计算内容哈希时被取消
+     */
+    public Key keyFor(Image source, ImageOperator operator, int strength, Rectangle2D region, BooleanSupplier cancelled) {
+        int width = (int) source.getWidth();
+        int height = (int) source.getHeight();
+        return region == null
+                ? new Key(contentHash(source, cancelled), width, height, operator.getId(), strength, 0, 0, width, height)
+                : new Key(contentHash(source, cancelled), width, height, operator.getId(), strength,
+                (int) region.getMinX(), (int) region.getMinY(), (int) region.getWidth(), (int) region.getHeight());
+    }
+
+    // 命中时返回之前的结果，否则返回 null
+    public Image get(Key key) {
+        return results.get(key);
+    }
+
+    public void put(Key key, Image result) {
+        results.put(key, result);
+    }
+
+    // 图像像素的 64 位内容哈希，按行带并行计算每行的哈希后按行序合并
+    public long contentHash(Image image, BooleanSupplier cancelled) {
+        synchronized (hashes) {
+            Long known = hashes.get(image);
+            if (known != null) {
+                return known;
+            }
+        }
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        ImageMetrics.Timer timer = ImageMetrics.start("hash");
+        long[] rowHashes = new long[height];
+        PixelSurface surface = PixelSurface.of(image);
+        PixelReader reader = image.getPixelReader();
+        ParallelBands.forEach(0, height, (rowStart, rowEnd) -> {
+            int[] row = surface != null ? surface.getPixels() : new int[width];
+            for (int y = rowStart; y < rowEnd; y++) {
+                int offset = 0;
+                if (surface != null) {
+                    offset = y * width;
+                } else {
+                    reader.getPixels(0, y, width, 1, PixelFormat.getIntArgbPreInstance(), row, 0, width);
+                }
+                long hash = y;
+                for (int x = 0; x < width; x++) {
+                    hash = mix(hash, row[offset + x]);
+                }
+                rowHashes[y] = hash;
+            }
+        }, cancelled, rows -> { });
+        long hash = mix(width, height);
+        for (long rowHash : rowHashes) {
+            hash = mix(hash, rowHash);
+        }
+        timer.stop((long) width * height);
+        synchronized (hashes) {
+            hashes.put(image, hash);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    public long getTotalBytes() {
+        return results.getTotalBytes();
+    }
+
+    public long getHits() {
+        return results.getHits();
+    }
+
+    public long getMisses() {
+        return results.getMisses();
+    }
+
+    // 缓存键；源图像尺寸一并参与比较，以降低哈希碰撞的影响
+    public record Key(long contentHash, int width, int height, String operator, int strength,
+                      int regionX, int regionY, int regionWidth, int regionHeight) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.image;
+
+/**
+ * Roberts 交叉算子：2x2 对角差分的绝对值之和。
+ */
+public class RobertsCrossOperator implements ImageOperator {
+
+    @Override
+    public String getId() {
+        return OperatorRegistry.ROBERTS;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Roberts Cross";
+    }
+
+    @Override
+    public int getRadius() {
+        return 1;
+    }
+
+    @Override
+    public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        byte[] gray = source.getGray();
+
+        for (int y = Math.max(0, rowStart); y < Math.min(height - 1, rowEnd); y++) {
+            int row = y * width;
+            for (int x = 0; x < width - 1; x++) {
+                int i = row + x;
+                int p1 = gray[i] & 0xff;
+                int p2 = gray[i + width + 1] & 0xff;
+                int p3 = gray[i + 1] & 0xff;
+                int p4 = gray[i + width] & 0xff;
+
+                output[i] = EdgeLut.map(lut, Math.abs(p1 - p2) + Math.abs(p3 - p4));
+            }
+        }
+    }
+}
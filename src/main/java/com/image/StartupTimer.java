@@ -0,0 +1,90 @@
+package com.image;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 启动阶段计时：记录各阶段相对 JVM 启动时刻的开始与结束时间，以及窗口显示等里程碑。
+ * <p>
+ * 每个阶段同时作为 {@code startup.<名称>} 记入 {@link ImageMetrics}，可随其他统计一起导出；
+ * 以 {@code -Dimage.startupTiming=true} 启动时，启动完成后把时间表打印到标准错误输出。
+ */
+public final class StartupTimer {
+
+    private static final boolean PRINT = Boolean.getBoolean("image.startupTiming");
+
+    // JVM 启动时刻对应的 System.nanoTime()，无法取得进程启动时间时以本类加载时刻为准
+    private static final long ORIGIN_NANOS = System.nanoTime() - ProcessHandle.current().info().startInstant()
+            .map(start -> Math.max(0, Instant.now().toEpochMilli() - start.toEpochMilli()) * 1_000_000L)
+            .orElse(0L);
+
+    private static final List<Entry> ENTRIES = new ArrayList<>();
+
+    private StartupTimer() {
+    }
+
+    // 一个阶段或里程碑，时间为相对 JVM 启动的毫秒数；里程碑的开始与结束相同
+    private record Entry(String name, String thread, double startMillis, double endMillis) {
+    }
+
+    // 进行中的阶段
+    public static final class Phase {
+        private final String name;
+        private final ImageMetrics.Timer timer;
+        private final long startNanos;
+
+        private Phase(String name) {
+            this.name = name;
+            this.timer = ImageMetrics.start("startup." + name);
+            this.startNanos = System.nanoTime();
+        }
+
+        public void end() {
+            timer.stop(0);
+            add(new Entry(name, Thread.currentThread().getName(), millis(startNanos), millis(System.nanoTime())));
+        }
+    }
+
+    // 开始一个阶段，阶段结束时调用 end()
+    public static Phase begin(String name) {
+        return new Phase(name);
+    }
+
+    // 记录一个时间点，例如窗口首次显示
+    public static void milestone(String name) {
+        double now = millis(System.nanoTime());
+        add(new Entry(name, Thread.currentThread().getName(), now, now));
+    }
+
+    // 启动完成：按需打印时间表
+    public static void finish() {
+        milestone("startup-complete");
+        if (PRINT) {
+            System.err.print(report());
+        }
+    }
+
+    // 按开始时间排列的时间表
+    public static synchronized String report() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-24s %10s %10s %10s  %s%n",
+                "startup phase", "start ms", "end ms", "took ms", "thread"));
+        ENTRIES.stream()
+                .sorted((a, b) -> Double.compare(a.startMillis(), b.startMillis()))
+                .forEach(entry -> text.append(String.format(Locale.ROOT, "%-24s %10.1f %10.1f %10s  %s%n",
+                        entry.name(), entry.startMillis(), entry.endMillis(),
+                        entry.startMillis() == entry.endMillis() ? "-"
+                                : String.format(Locale.ROOT, "%.1f", entry.endMillis() - entry.startMillis()),
+                        entry.thread())));
+        return text.toString();
+    }
+
+    private static synchronized void add(Entry entry) {
+        ENTRIES.add(entry);
+    }
+
+    private static double millis(long nanos) {
+        return (nanos - ORIGIN_NANOS) / 1e6;
+    }
+}
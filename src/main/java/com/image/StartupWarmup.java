@@ -0,0 +1,72 @@
+package com.image;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 窗口显示后在后台预热首次图像操作才会用到的代码：ImageIO 插件注册表与编解码器、
+ * JavaFX 像素读写路径，以及所有已注册算子（加载类并触发 JIT 编译）。
+ * 以 {@code -Dimage.warmup=false} 启动时跳过。
+ */
+final class StartupWarmup {
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("image.warmup"));
+
+    // 预热图像的边长，足以让算子按行带并行执行
+    private static final int SIZE = 256;
+    // 每个算子的执行次数
+    private static final int ROUNDS = 3;
+
+    private StartupWarmup() {
+    }
+
+    static void run() {
+        if (!ENABLED) {
+            return;
+        }
+        StartupTimer.Phase phase = StartupTimer.begin("warmup.imageio");
+        imageIO();
+        phase.end();
+
+        phase = StartupTimer.begin("warmup.pixels");
+        int[] argb = new int[SIZE * SIZE];
+        for (int i = 0; i < argb.length; i++) {
+            // 带噪声的渐变，使阈值类算子的各个分支都被执行
+            argb[i] = 0xff000000 | (i * 0x9e3779b1 >>> 8) & 0x3f3f3f | (i % SIZE) * 0x010101 >> 1 & 0x7f7f7f;
+        }
+        WritableImage image = new WritableImage(SIZE, SIZE);
+        image.getPixelWriter().setPixels(0, 0, SIZE, SIZE, PixelFormat.getIntArgbInstance(), argb, 0, SIZE);
+        PixelRaster raster = PixelRaster.of(image);
+        phase.end();
+
+        phase = StartupTimer.begin("warmup.operators");
+        PixelSurface surface = PixelSurface.create(SIZE, SIZE);
+        for (int round = 0; round < ROUNDS; round++) {
+            for (ImageOperator operator : OperatorRegistry.getAll()) {
+                EdgeDetectionTask.detect(raster, operator, 50, surface.getPixels());
+            }
+        }
+        phase.end();
+    }
+
+    // 注册表初始化会扫描所有 ImageIO 插件；再以 PNG 往返一次，加载编解码器与压缩库
+    private static void imageIO() {
+        ImageIO.getReaderFormatNames();
+        ImageIO.getWriterFormatNames();
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
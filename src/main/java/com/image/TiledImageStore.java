@@ -0,0 +1,87 @@
+package com.image;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 存放在内存映射临时文件中的单通道（每像素一字节）图像平面，用于处理超出堆大小的图像。
+ * <p>
+ * 数据按行存储，文件被映射为若干由整行组成的段（单段不超过 {@code image.tileSegmentBytes}，默认 256 MB），
+ * 调用方以矩形区域（瓦片）为单位读写，堆内只保留当前处理的瓦片。
+ * 不同线程可以并发读写互不重叠的区域。
+ */
+public final class TiledImageStore implements AutoCloseable {
+
+    private static final long SEGMENT_BYTES = Long.getLong("image.tileSegmentBytes", 256L * 1024 * 1024);
+
+    private final int width;
+    private final int height;
+    private final int segmentRows;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+
+    private TiledImageStore(int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.segmentRows = (int) Math.max(1, Math.min(height, SEGMENT_BYTES / width));
+        this.path = Files.createTempFile("image-tiles", ".bin");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        int count = (height + segmentRows - 1) / segmentRows;
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            int rows = Math.min(segmentRows, height - i * segmentRows);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentRows * width, (long) rows * width);
+        }
+    }
+
+    // 创建全 0 的平面，文件在 close 时删除
+    public static TiledImageStore create(int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        return new TiledImageStore(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // 将区域 (x, y, w, h) 读入 target，target 按行紧凑存储（行距为 w）
+    public void readRegion(int x, int y, int w, int h, byte[] target) {
+        checkRegion(x, y, w, h);
+        for (int row = 0; row < h; row++) {
+            int sourceY = y + row;
+            segments[sourceY / segmentRows].get((sourceY % segmentRows) * width + x, target, row * w, w);
+        }
+    }
+
+    // 将按行紧凑存储的 source 写入区域 (x, y, w, h)
+    public void writeRegion(int x, int y, int w, int h, byte[] source) {
+        checkRegion(x, y, w, h);
+        for (int row = 0; row < h; row++) {
+            int targetY = y + row;
+            segments[targetY / segmentRows].put((targetY % segmentRows) * width + x, source, row * w, w);
+        }
+    }
+
+    private void checkRegion(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height) {
+            throw new IllegalArgumentException("Region outside the image: " + x + "," + y + "," + w + "," + h);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
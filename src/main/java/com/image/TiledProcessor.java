@@ -0,0 +1,197 @@
+package com.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Properties;
+
+/**
+ * 超大图像的分块处理，堆占用与图像尺寸无关。
+ * <p>
+ * 图像经 {@link ImageReader} 按源区域（条带或原生瓦片）解码为亮度平面，存入内存映射的 {@link TiledImageStore}；
+ * 算子逐瓦片运行，每个瓦片按算子半径多读一圈光晕，因此拼接结果与整图处理一致；
+ * Otsu 阈值先从存储中统计整幅图像的直方图，再逐瓦片按同一阈值二值化；
+ * 其他需要整幅图像信息的算子（如 Canny 的滞后阈值连通）无法这样拼接，不予支持，见 {@link #supports}。
+ * 结果以灰度 PNG 瓦片写入输出目录，并附带记录尺寸与瓦片大小的 tiles.properties。
+ */
+public final class TiledProcessor {
+
+    // 输出瓦片边长
+    public static final int TILE_SIZE = Integer.getInteger("image.tileSize", 1024);
+
+    // 解码条带的像素数上限（按每像素 4 字节计约 32 MB）
+    private static final long STRIP_PIXELS = 8L * 1024 * 1024;
+
+    private TiledProcessor() {
+    }
+
+    // 算子能否逐瓦片计算：普通算子与 Otsu 阈值都可以，其他多遍算子须声明结果只依赖局部邻域
+    public static boolean supports(ImageOperator operator) {
+        return !(operator instanceof MultiPassOperator multiPass) || multiPass.isLocal()
+                || operator instanceof OtsuThresholdOperator;
+    }
+
+    /**
+     * 处理单个图像文件，瓦片写入 outputDirectory，返回处理的像素数。
+     *
+     * @param operator 为 null 时直接输出亮度平面
+     * @throws IllegalArgumentException 若算子不能逐瓦片计算
+     */
+    public static long process(Path input, ImageOperator operator, int strength, Path outputDirectory)
+            throws IOException {
+        if (operator != null && !supports(operator)) {
+            throw new IllegalArgumentException(operator.getDisplayName() + " needs the whole image and cannot run tiled");
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input.toFile())) {
+            if (stream == null) {
+                throw new IOException("Cannot open " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("No reader for " + input);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                try (TiledImageStore luminance = TiledImageStore.create(width, height)) {
+                    ImageMetrics.Timer decodeTimer = ImageMetrics.start("tiled.decode");
+                    decode(reader, luminance);
+                    decodeTimer.stop((long) width * height);
+
+                    ImageMetrics.Timer processTimer = ImageMetrics.start("tiled." + (operator == null ? "none" : operator.getId()));
+                    Files.createDirectories(outputDirectory);
+                    // Otsu 阈值取决于整幅图像的直方图，不能由各瓦片分别求得
+                    int threshold = operator instanceof OtsuThresholdOperator
+                            ? OtsuThresholdOperator.threshold(histogram(luminance), strength) : -1;
+                    writeTiles(luminance, operator, strength, threshold, outputDirectory);
+                    writeIndex(outputDirectory, width, height, operator, strength);
+                    processTimer.stop((long) width * height);
+                }
+                return (long) width * height;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 原生分块的格式（如分块 TIFF）按瓦片解码，其他格式按整行条带解码
+    private static void decode(ImageReader reader, TiledImageStore store) throws IOException {
+        int width = store.getWidth();
+        int height = store.getHeight();
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (reader.isImageTiled(0)) {
+            int tileWidth = reader.getTileWidth(0);
+            int tileHeight = reader.getTileHeight(0);
+            for (int y = 0; y < height; y += tileHeight) {
+                for (int x = 0; x < width; x += tileWidth) {
+                    Rectangle region = new Rectangle(x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y));
+                    param.setSourceRegion(region);
+                    storeLuminance(reader.read(0, param), store, x, y);
+                }
+            }
+            return;
+        }
+        int stripRows = (int) Math.max(1, Math.min(height, STRIP_PIXELS / width));
+        for (int y = 0; y < height; y += stripRows) {
+            param.setSourceRegion(new Rectangle(0, y, width, Math.min(stripRows, height - y)));
+            storeLuminance(reader.read(0, param), store, 0, y);
+        }
+    }
+
+    private static void storeLuminance(BufferedImage region, TiledImageStore store, int x, int y) {
+        PixelRaster raster = PixelRaster.of(region);
+        store.writeRegion(x, y, raster.getWidth(), raster.getHeight(), raster.getGray());
+    }
+
+    // 按条带读取存储，统计整幅图像的亮度直方图
+    private static long[] histogram(TiledImageStore store) {
+        int width = store.getWidth();
+        int height = store.getHeight();
+        int stripRows = (int) Math.max(1, Math.min(height, STRIP_PIXELS / width));
+        byte[] strip = new byte[stripRows * width];
+        long[] histogram = new long[256];
+        for (int y = 0; y < height; y += stripRows) {
+            int rows = Math.min(stripRows, height - y);
+            store.readRegion(0, y, width, rows, strip);
+            OtsuThresholdOperator.accumulate(strip, histogram, 0, rows * width);
+        }
+        return histogram;
+    }
+
+    // 逐瓦片运行算子，瓦片内部仍按行带并行；threshold 不小于 0 时改为按该全局阈值二值化
+    private static void writeTiles(TiledImageStore source, ImageOperator operator, int strength, int threshold,
+                                   Path directory) throws IOException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int halo = operator == null ? 0 : operator.getRadius();
+        for (int tileY = 0; tileY < height; tileY += TILE_SIZE) {
+            for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+                int tileWidth = Math.min(TILE_SIZE, width - tileX);
+                int tileHeight = Math.min(TILE_SIZE, height - tileY);
+
+                // 光晕超出图像的部分与整图处理时一样保持未计算
+                int haloX = Math.max(0, tileX - halo);
+                int haloY = Math.max(0, tileY - halo);
+                int haloWidth = Math.min(width, tileX + tileWidth + halo) - haloX;
+                int haloHeight = Math.min(height, tileY + tileHeight + halo) - haloY;
+                byte[] gray = new byte[haloWidth * haloHeight];
+                source.readRegion(haloX, haloY, haloWidth, haloHeight, gray);
+
+                BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_BYTE_GRAY);
+                byte[] tilePixels = ((DataBufferByte) tile.getRaster().getDataBuffer()).getData();
+                int offsetX = tileX - haloX;
+                int offsetY = tileY - haloY;
+                if (operator == null) {
+                    for (int row = 0; row < tileHeight; row++) {
+                        System.arraycopy(gray, (offsetY + row) * haloWidth + offsetX, tilePixels, row * tileWidth, tileWidth);
+                    }
+                } else if (threshold >= 0) {
+                    // Otsu 半径为 0，读取的区域就是瓦片本身
+                    for (int i = 0; i < tilePixels.length; i++) {
+                        tilePixels[i] = (gray[i] & 0xff) > threshold ? (byte) 255 : 0;
+                    }
+                } else {
+                    int[] edges = new int[haloWidth * haloHeight];
+                    EdgeDetectionTask.detect(PixelRaster.fromGray(gray, haloWidth, haloHeight), operator, strength, edges);
+                    for (int row = 0; row < tileHeight; row++) {
+                        int from = (offsetY + row) * haloWidth + offsetX;
+                        int to = row * tileWidth;
+                        for (int i = 0; i < tileWidth; i++) {
+                            tilePixels[to + i] = (byte) edges[from + i];
+                        }
+                    }
+                }
+                Path file = directory.resolve("tile_" + (tileY / TILE_SIZE) + "_" + (tileX / TILE_SIZE) + ".png");
+                if (!ImageIO.write(tile, "png", file.toFile())) {
+                    throw new IOException("No PNG writer available");
+                }
+            }
+        }
+    }
+
+    // 记录拼接瓦片所需的信息：tile_<行>_<列>.png，瓦片边长为 tileSize
+    private static void writeIndex(Path directory, int width, int height, ImageOperator operator, int strength)
+            throws IOException {
+        Properties index = new Properties();
+        index.setProperty("width", Integer.toString(width));
+        index.setProperty("height", Integer.toString(height));
+        index.setProperty("tileSize", Integer.toString(TILE_SIZE));
+        index.setProperty("operator", operator == null ? "none" : operator.getId());
+        index.setProperty("strength", Integer.toString(strength));
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("tiles.properties"), StandardCharsets.UTF_8)) {
+            index.store(writer, "Tiled edge detection output");
+        }
+    }
+}
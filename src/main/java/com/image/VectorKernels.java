@@ -0,0 +1,173 @@
+package com.image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 {@code jdk.incubator.vector} 的 3x3 模板实现，一次处理一整组车道（lane）的像素。
+ * <p>
+ * 每个输出行先把所需源行展开为 {@code int[]}，再用向量运算求幅值并钳制到查找表范围，
+ * 最后逐像素查表写出。梯度幅值用单精度开方近似：对本算子可能出现的整数（小于 2<sup>24</sup>），
+ * 单精度开方后截断与 {@code (int) Math.sqrt} 结果相同，因此输出与标量路径逐位一致。
+ * <p>
+ * 只能通过 {@link VectorSupport} 访问，以保证模块缺失时不会加载本类。
+ */
+final class VectorKernels {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    // 每组车道的像素数，调用时会初始化本类与向量模块
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    static void robertsCross(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(0, rowStart);
+        int lastRow = Math.min(height - 1, rowEnd);
+        if (firstRow >= lastRow) {
+            return;
+        }
+        int lanes = SPECIES.length();
+        int limit = lut.length - 1;
+        int[] top = new int[width];
+        int[] bottom = new int[width];
+        int[] magnitude = new int[width];
+        expandRow(source, firstRow, top);
+
+        for (int y = firstRow; y < lastRow; y++) {
+            expandRow(source, y + 1, bottom);
+            int x = 0;
+            for (; x <= width - 1 - lanes; x += lanes) {
+                IntVector p1 = IntVector.fromArray(SPECIES, top, x);
+                IntVector p2 = IntVector.fromArray(SPECIES, bottom, x + 1);
+                IntVector p3 = IntVector.fromArray(SPECIES, top, x + 1);
+                IntVector p4 = IntVector.fromArray(SPECIES, bottom, x);
+                p1.sub(p2).abs().add(p3.sub(p4).abs()).min(limit).intoArray(magnitude, x);
+            }
+            for (; x < width - 1; x++) {
+                int edge = Math.abs(top[x] - bottom[x + 1]) + Math.abs(top[x + 1] - bottom[x]);
+                magnitude[x] = Math.min(limit, edge);
+            }
+            writeRow(output, y * width, magnitude, 0, width - 1, lut);
+
+            int[] swap = top;
+            top = bottom;
+            bottom = swap;
+        }
+    }
+
+    static void sobel(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(1, rowStart);
+        int lastRow = Math.min(height - 1, rowEnd);
+        if (firstRow >= lastRow || width < 3) {
+            return;
+        }
+        int lanes = SPECIES.length();
+        int limit = lut.length - 1;
+        int[] above = new int[width];
+        int[] current = new int[width];
+        int[] below = new int[width];
+        int[] magnitude = new int[width];
+        expandRow(source, firstRow - 1, above);
+        expandRow(source, firstRow, current);
+
+        for (int y = firstRow; y < lastRow; y++) {
+            expandRow(source, y + 1, below);
+            int x = 1;
+            for (; x <= width - 1 - lanes; x += lanes) {
+                IntVector tl = IntVector.fromArray(SPECIES, above, x - 1);
+                IntVector t = IntVector.fromArray(SPECIES, above, x);
+                IntVector tr = IntVector.fromArray(SPECIES, above, x + 1);
+                IntVector l = IntVector.fromArray(SPECIES, current, x - 1);
+                IntVector r = IntVector.fromArray(SPECIES, current, x + 1);
+                IntVector bl = IntVector.fromArray(SPECIES, below, x - 1);
+                IntVector b = IntVector.fromArray(SPECIES, below, x);
+                IntVector br = IntVector.fromArray(SPECIES, below, x + 1);
+
+                IntVector gx = bl.add(b.add(b)).add(br).sub(tl.add(t.add(t)).add(tr));
+                IntVector gy = tr.add(r.add(r)).add(br).sub(tl.add(l.add(l)).add(bl));
+                IntVector squared = gx.mul(gx).add(gy.mul(gy));
+                IntVector edge = (IntVector) squared.convert(VectorOperators.I2F, 0)
+                        .lanewise(VectorOperators.SQRT)
+                        .convert(VectorOperators.F2I, 0);
+                edge.min(limit).intoArray(magnitude, x);
+            }
+            for (; x < width - 1; x++) {
+                int gx = (below[x - 1] + 2 * below[x] + below[x + 1]) - (above[x - 1] + 2 * above[x] + above[x + 1]);
+                int gy = (above[x + 1] + 2 * current[x + 1] + below[x + 1]) - (above[x - 1] + 2 * current[x - 1] + below[x - 1]);
+                magnitude[x] = Math.min(limit, (int) Math.sqrt(gx * gx + gy * gy));
+            }
+            writeRow(output, y * width, magnitude, 1, width - 1, lut);
+
+            int[] swap = above;
+            above = current;
+            current = below;
+            below = swap;
+        }
+    }
+
+    static void laplacian(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int firstRow = Math.max(1, rowStart);
+        int lastRow = Math.min(height - 1, rowEnd);
+        if (firstRow >= lastRow || width < 3) {
+            return;
+        }
+        int lanes = SPECIES.length();
+        int limit = lut.length - 1;
+        int[] above = new int[width];
+        int[] current = new int[width];
+        int[] below = new int[width];
+        int[] magnitude = new int[width];
+        expandRow(source, firstRow - 1, above);
+        expandRow(source, firstRow, current);
+
+        for (int y = firstRow; y < lastRow; y++) {
+            expandRow(source, y + 1, below);
+            int x = 1;
+            for (; x <= width - 1 - lanes; x += lanes) {
+                IntVector t = IntVector.fromArray(SPECIES, above, x);
+                IntVector b = IntVector.fromArray(SPECIES, below, x);
+                IntVector l = IntVector.fromArray(SPECIES, current, x - 1);
+                IntVector c = IntVector.fromArray(SPECIES, current, x);
+                IntVector r = IntVector.fromArray(SPECIES, current, x + 1);
+                t.add(b).add(l).add(r).sub(c.lanewise(VectorOperators.LSHL, 2)).abs().min(limit).intoArray(magnitude, x);
+            }
+            for (; x < width - 1; x++) {
+                int sum = above[x] + below[x] + current[x - 1] + current[x + 1] - 4 * current[x];
+                magnitude[x] = Math.min(limit, Math.abs(sum));
+            }
+            writeRow(output, y * width, magnitude, 1, width - 1, lut);
+
+            int[] swap = above;
+            above = current;
+            current = below;
+            below = swap;
+        }
+    }
+
+    // 将灰度平面的一行展开为 int
+    private static void expandRow(PixelRaster source, int y, int[] target) {
+        byte[] gray = source.getGray();
+        int offset = y * target.length;
+        for (int x = 0; x < target.length; x++) {
+            target[x] = gray[offset + x] & 0xff;
+        }
+    }
+
+    // 已钳制的幅值逐像素查表写出 [from, to)
+    private static void writeRow(int[] output, int rowOffset, int[] magnitude, int from, int to, int[] lut) {
+        for (int x = from; x < to; x++) {
+            output[rowOffset + x] = lut[magnitude[x]];
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.image;
+
+/**
+ * 运行时选择 SIMD 实现：当 {@code jdk.incubator.vector} 模块可用且平台支持多车道向量时，
+ * 用 {@link VectorKernels} 替换 Roberts、Sobel 与拉普拉斯的标量实现，否则保持标量路径。
+ * <p>
+ * 以 {@code --add-modules jdk.incubator.vector} 启动即可启用（见 pom 中的 {@code vector} profile），
+ * 设置 {@code -Dimage.vector=false} 可强制使用标量路径。与标量路径逐位一致由 {@code VectorKernelsTest} 验证。
+ */
+public final class VectorSupport {
+
+    private static final String MODULE_NAME = "jdk.incubator.vector";
+
+    private static final boolean AVAILABLE = detect();
+
+    private VectorSupport() {
+    }
+
+    // 向量实现是否已启用
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    // 若存在对应的向量实现则返回加速后的算子，否则原样返回
+    public static ImageOperator accelerate(ImageOperator scalar) {
+        if (!AVAILABLE) {
+            return scalar;
+        }
+        BandKernel kernel = Kernels.forId(scalar.getId());
+        return kernel == null ? scalar : new VectorizedOperator(scalar, kernel);
+    }
+
+    private static boolean detect() {
+        if (!Boolean.parseBoolean(System.getProperty("image.vector", "true"))
+                || ModuleLayer.boot().findModule(MODULE_NAME).isEmpty()) {
+            return false;
+        }
+        try {
+            return Kernels.lanes() > 1;
+        } catch (Throwable t) {
+            // 模块不可读、平台不支持等情况一律回退到标量路径
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BandKernel {
+        void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut);
+    }
+
+    // 单独的持有类，只有在模块可用时才会触发 VectorKernels 的加载
+    private static final class Kernels {
+        static int lanes() {
+            return VectorKernels.lanes();
+        }
+
+        static BandKernel forId(String id) {
+            return switch (id) {
+                case OperatorRegistry.ROBERTS -> VectorKernels::robertsCross;
+                case OperatorRegistry.SOBEL -> VectorKernels::sobel;
+                case OperatorRegistry.LAPLACIAN -> VectorKernels::laplacian;
+                default -> null;
+            };
+        }
+    }
+
+    private static final class VectorizedOperator implements ImageOperator {
+        private final ImageOperator scalar;
+        private final BandKernel kernel;
+
+        VectorizedOperator(ImageOperator scalar, BandKernel kernel) {
+            this.scalar = scalar;
+            this.kernel = kernel;
+        }
+
+        @Override
+        public String getId() {
+            return scalar.getId();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return scalar.getDisplayName();
+        }
+
+        @Override
+        public int getRadius() {
+            return scalar.getRadius();
+        }
+
+        @Override
+        public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+            kernel.apply(source, output, rowStart, rowEnd, lut);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 将 zip 中的每个图像经算子处理后写入新的 zip，条目顺序与输入一致。
+ * <p>
+ * 条目按顺序从 {@link ZipFile} 读取，多个条目并发解码、处理与编码，
+ * 已提交但尚未写出的条目的估算内存之和不超过预算：预算不足时先按顺序写出最早的结果，
+ * 因此任何时刻内存中只有少量条目，与压缩包大小无关。
+ * 非图像条目与无法识别的图像原样复制。
+ */
+public final class ZipBatchTransformer {
+
+    // 默认在途字节预算，可通过 -Dimage.zipInFlightBytes 调整
+    public static final long DEFAULT_IN_FLIGHT_BYTES = Long.getLong("image.zipInFlightBytes", 512L * 1024 * 1024);
+
+    // 默认并发处理的条目数
+    public static final int DEFAULT_CONCURRENCY = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ImageOperator operator;
+    private final int strength;
+    private final String format;
+    private long maxBytesInFlight = DEFAULT_IN_FLIGHT_BYTES;
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    // operator 为 null 时只转换格式
+    public ZipBatchTransformer(ImageOperator operator, int strength, String format) {
+        this.operator = operator;
+        this.strength = strength;
+        this.format = format.toLowerCase(Locale.ROOT);
+    }
+
+    public ZipBatchTransformer setMaxBytesInFlight(long maxBytesInFlight) {
+        if (maxBytesInFlight < 1) {
+            throw new IllegalArgumentException("Byte budget must be positive: " + maxBytesInFlight);
+        }
+        this.maxBytesInFlight = maxBytesInFlight;
+        return this;
+    }
+
+    public ZipBatchTransformer setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    // 待写出的条目：result 为 null 表示原样复制
+    private record Pending(ZipEntry entry, CompletableFuture<byte[]> result, long bytes) {
+    }
+
+    /**
+     * 处理 input 并写出 output，每写出一个图像条目以 1 调用 progress。
+     * 单个条目处理失败时跳过该条目并计入结果，不会中断整个压缩包。
+     *
+     * @throws CancellationException 若 cancelled 返回 true，此时输出文件不完整
+     */
+    public Result transform(File input, File output, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "zip-worker-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Result result = new Result();
+        Deque<Pending> pending = new ArrayDeque<>();
+        Set<String> names = new HashSet<>();
+        long start = System.nanoTime();
+        try (ZipFile zipFile = new ZipFile(input);
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(output.toPath()))) {
+            long inFlight = 0;
+            Iterator<? extends ZipEntry> entries = zipFile.stream().iterator();
+            while (entries.hasNext()) {
+                ZipEntry entry = entries.next();
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                if (entry.isDirectory() || !ImageUtils.isImageFileName(entry.getName())) {
+                    pending.add(new Pending(entry, null, 0));
+                } else {
+                    long bytes = Math.min(estimateBytes(zipFile, entry), maxBytesInFlight);
+                    // 超出预算或并发数时按顺序写出最早的结果，直到能容纳新条目
+                    while (!pending.isEmpty() && (inFlight + bytes > maxBytesInFlight || pending.size() >= 2 * concurrency)) {
+                        inFlight -= writeNext(zipFile, out, pending, names, result, progress);
+                    }
+                    inFlight += bytes;
+                    pending.add(new Pending(entry, CompletableFuture.supplyAsync(() -> process(zipFile, entry, result), workers), bytes));
+                }
+                // 已完成的结果尽早写出
+                while (!pending.isEmpty() && (pending.peek().result() == null || pending.peek().result().isDone())) {
+                    inFlight -= writeNext(zipFile, out, pending, names, result, progress);
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                inFlight -= writeNext(zipFile, out, pending, names, result, progress);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 不完整的输出没有用处
+            Files.deleteIfExists(output.toPath());
+            throw e;
+        } finally {
+            pending.forEach(item -> {
+                if (item.result() != null) {
+                    item.result().cancel(false);
+                }
+            });
+            workers.shutdownNow();
+        }
+        result.wallNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 写出队首条目，返回释放的在途字节数
+    private long writeNext(ZipFile zipFile, ZipOutputStream out, Deque<Pending> pending, Set<String> names,
+                           Result result, IntConsumer progress) throws IOException {
+        Pending item = pending.poll();
+        ZipEntry entry = item.entry();
+        if (item.result() == null) {
+            copy(zipFile, entry, names, out);
+            result.copied++;
+            return 0;
+        }
+        try {
+            byte[] encoded = item.result().join();
+            if (encoded == null) {
+                copy(zipFile, entry, names, out);
+                result.copied++;
+            } else {
+                // a.png 与 a.jpg 换后缀后同名时，后者保留原后缀再追加新后缀
+                String name = replaceSuffix(entry.getName());
+                if (names.contains(name)) {
+                    name = entry.getName() + "." + format;
+                }
+                out.putNextEntry(new ZipEntry(claimName(names, name)));
+                out.write(encoded);
+                out.closeEntry();
+                result.processed++;
+            }
+        } catch (CompletionException e) {
+            result.failed++;
+            System.err.println("Failed to process " + entry.getName() + ": " + e.getCause().getMessage());
+        }
+        progress.accept(1);
+        return item.bytes();
+    }
+
+    /**
+     * 占用一个未使用的条目名：name 已被占用（例如换后缀后的处理结果与后面原样复制的条目同名）时，
+     * 在后缀前依次追加 _1、_2……
+     */
+    private static String claimName(Set<String> names, String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        int split = dot > name.lastIndexOf('/') ? dot : name.length();
+        for (int i = 1; ; i++) {
+            String candidate = name.substring(0, split) + "_" + i + name.substring(split);
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    // 原样复制条目，保留时间与注释，名称冲突时改名；以流的方式传输而不整体读入内存
+    private static void copy(ZipFile zipFile, ZipEntry entry, Set<String> names, ZipOutputStream out)
+            throws IOException {
+        if (entry.isDirectory() && names.contains(entry.getName())) {
+            // 重复的目录条目不携带内容，无需再写
+            return;
+        }
+        ZipEntry copy = new ZipEntry(claimName(names, entry.getName()));
+        copy.setTime(entry.getTime());
+        copy.setComment(entry.getComment());
+        copy.setExtra(entry.getExtra());
+        out.putNextEntry(copy);
+        if (!entry.isDirectory()) {
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                in.transferTo(out);
+            }
+        }
+        out.closeEntry();
+    }
+
+    // 在工作线程中解码、处理并编码一个条目；无法识别的图像返回 null，由写出线程原样复制
+    private byte[] process(ZipFile zipFile, ZipEntry entry, Result result) {
+        try {
+            BufferedImage image;
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                ImageMetrics.Timer timer = ImageMetrics.start("decode");
+                image = ImageIO.read(in);
+                if (image == null) {
+                    return null;
+                }
+                timer.stop((long) image.getWidth() * image.getHeight());
+            }
+            result.pixels.add((long) image.getWidth() * image.getHeight());
+            if (operator != null) {
+                ImageMetrics.Timer timer = ImageMetrics.start(operator.getId());
+                image = EdgeDetectionTask.detect(image, operator, strength);
+                timer.stop((long) image.getWidth() * image.getHeight());
+            }
+            ImageMetrics.Timer timer = ImageMetrics.start("export");
+            if (!BatchProcessor.hasAlphaSupport(format)) {
+                image = BatchProcessor.withoutAlpha(image);
+            }
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, format, encoded)) {
+                throw new IOException("No writer for format " + format);
+            }
+            timer.stop((long) image.getWidth() * image.getHeight());
+            return encoded.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 估算处理一个条目时的内存：源图像、亮度平面与输出图像各一份。
+     * 只读取图像头获得尺寸，无法读取时按解压后大小的 4 倍估算。
+     */
+    private static long estimateBytes(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (InputStream in = zipFile.getInputStream(entry);
+             ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(stream, true, true);
+                    return (long) reader.getWidth(0) * reader.getHeight(0) * (4 + 1 + 4);
+                } catch (IOException | RuntimeException e) {
+                    // 图像头损坏时按压缩大小估算，错误留给处理阶段报告
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        return Math.max(1, entry.getSize()) * 4;
+    }
+
+    private String replaceSuffix(String name) {
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "." + format;
+    }
+
+    // 处理结果统计
+    public static final class Result {
+        int processed;
+        int copied;
+        int failed;
+        // 由工作线程累加
+        final LongAdder pixels = new LongAdder();
+        long wallNanos;
+
+        public int getProcessed() {
+            return processed;
+        }
+
+        public int getCopied() {
+            return copied;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getPixels() {
+            return pixels.sum();
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "Processed %d images (%d copied unchanged, %d failed) in %.2f s",
+                    processed, copied, failed, wallNanos / 1e9);
+        }
+    }
+}
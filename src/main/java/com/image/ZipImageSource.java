@@ -0,0 +1,130 @@
+package com.image;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 惰性加载的 zip 图像源。
+ * <p>
+ * 打开时只读取中央目录并索引图像条目，每个条目在首次请求时才于后台线程解码。
+ * 解码在共享的 {@link ImageExecutors} 线程池中进行，结果放入按字节预算淘汰的 LRU 缓存，
+ * 并预取前后相邻的条目，便于逐张浏览。
+ */
+public class ZipImageSource implements AutoCloseable {
+
+    // 默认解码缓存预算，可通过 -Dimage.zipCacheBytes 调整
+    private static final long DEFAULT_CACHE_BYTES = Long.getLong("image.zipCacheBytes", 256L * 1024 * 1024);
+
+    private final ZipFile zipFile;
+    private final List<ZipEntry> entries;
+    private final LruCache<Integer, Image> cache;
+    private final Map<Integer, CompletableFuture<Image>> inFlight = new HashMap<>();
+    private boolean closed;
+
+    private ZipImageSource(ZipFile zipFile, long cacheBytes) {
+        this.zipFile = zipFile;
+        this.entries = zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && ImageUtils.isImageFileName(entry.getName()))
+                .map(entry -> (ZipEntry) entry)
+                .toList();
+        this.cache = new LruCache<>(cacheBytes, ZipImageSource::estimateBytes);
+    }
+
+    // 打开 zip 并索引其中的图像条目，不解码任何图像
+    public static ZipImageSource open(File file) throws IOException {
+        return new ZipImageSource(new ZipFile(file), DEFAULT_CACHE_BYTES);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String getEntryName(int index) {
+        return entries.get(index).getName();
+    }
+
+    /**
+     * 异步获取第 index 张图像，命中缓存时立即完成。
+     * 加载完成后会在后台预取相邻条目。
+     */
+    public CompletableFuture<Image> load(int index) {
+        CompletableFuture<Image> future = request(index);
+        future.thenRun(() -> {
+            request(index + 1);
+            request(index - 1);
+        });
+        return future;
+    }
+
+    private synchronized CompletableFuture<Image> request(int index) {
+        if (closed || index < 0 || index >= entries.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Image cached = cache.get(index);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Image> pending = inFlight.get(index);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<Image> future = CompletableFuture.supplyAsync(() -> decode(index), ImageExecutors.shared());
+        inFlight.put(index, future);
+        future.whenComplete((image, error) -> {
+            synchronized (this) {
+                inFlight.remove(index);
+                if (image != null && !closed) {
+                    cache.put(index, image);
+                }
+            }
+        });
+        return future;
+    }
+
+    private Image decode(int index) {
+        synchronized (this) {
+            // 关闭后排队中的解码直接放弃
+            if (closed) {
+                throw new CancellationException();
+            }
+        }
+        try (InputStream in = zipFile.getInputStream(entries.get(index))) {
+            ImageMetrics.Timer timer = ImageMetrics.start("decode");
+            Image image = new Image(in);
+            if (image.isError()) {
+                throw new UncheckedIOException(new IOException("Cannot decode " + getEntryName(index),
+                        image.getException()));
+            }
+            timer.stop((long) image.getWidth() * (long) image.getHeight());
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long estimateBytes(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            inFlight.values().forEach(future -> future.cancel(false));
+            cache.clear();
+            inFlight.clear();
+        }
+        zipFile.close();
+    }
+}
@@ -2,6 +2,10 @@ module com.image {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.swing;
+    requires jdk.httpserver;
+    requires jdk.jfr;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 
     opens com.image to javafx.fxml;
     exports com.image;
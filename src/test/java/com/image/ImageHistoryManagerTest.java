@@ -0,0 +1,117 @@
+package com.image;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预算很小时大部分状态都会压缩并溢出到磁盘，撤销与重做仍须逐像素还原，且溢出文件不随往返次数增长。
+ */
+class ImageHistoryManagerTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final long IMAGE_BYTES = (long) WIDTH * HEIGHT * 4;
+
+    @Test
+    void undoAndRedoRoundTripPastBudget() throws InterruptedException {
+        ImageHistoryManager history = new ImageHistoryManager(2 * IMAGE_BYTES);
+        List<int[]> states = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 10; i++) {
+            states.add(randomPixels(random));
+        }
+        for (int i = 0; i < states.size() - 1; i++) {
+            history.saveState(toImage(states.get(i)));
+            history.awaitIdle();
+        }
+        assertTrue(history.getSpillBytes() > 0, "states beyond the budget should be spilled");
+
+        // 当前显示的是最后一个状态，依次撤销到第一个，再全部重做
+        Image current = toImage(states.get(states.size() - 1));
+        for (int i = states.size() - 2; i >= 0; i--) {
+            current = history.undo(current);
+            assertArrayEquals(states.get(i), pixelsOf(current), "undo to state " + i);
+            history.awaitIdle();
+        }
+        assertFalse(history.canUndo());
+        assertNull(history.undo(current));
+        for (int i = 1; i < states.size(); i++) {
+            current = history.redo(current);
+            assertArrayEquals(states.get(i), pixelsOf(current), "redo to state " + i);
+            history.awaitIdle();
+        }
+        assertFalse(history.canRedo());
+        history.clear();
+    }
+
+    @Test
+    void spillFileDoesNotGrowWithUndoRedo() throws InterruptedException {
+        ImageHistoryManager history = new ImageHistoryManager(2 * IMAGE_BYTES);
+        Random random = new Random(12);
+        int count = 8;
+        for (int i = 0; i < count; i++) {
+            history.saveState(toImage(randomPixels(random)));
+            history.awaitIdle();
+        }
+        Image current = toImage(randomPixels(random));
+        long peak = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < count; i++) {
+                current = history.undo(current);
+                history.awaitIdle();
+            }
+            for (int i = 0; i < count; i++) {
+                current = history.redo(current);
+                history.awaitIdle();
+            }
+            peak = Math.max(peak, history.getSpillBytes());
+        }
+        // 随机像素几乎不可压缩，所有状态同时溢出也不超过这个上限
+        assertTrue(peak <= (count + 1) * (IMAGE_BYTES + 1024), "spill file grew to " + peak);
+
+        // 撤销一半后的新操作丢弃重做记录，其文件区域可以复用
+        for (int i = 0; i < count / 2; i++) {
+            current = history.undo(current);
+            history.awaitIdle();
+        }
+        for (int round = 0; round < 20; round++) {
+            history.saveState(current);
+            current = history.undo(toImage(randomPixels(random)));
+            history.awaitIdle();
+        }
+        assertTrue(history.getSpillBytes() <= (count + 1) * (IMAGE_BYTES + 1024),
+                "spill file grew to " + history.getSpillBytes());
+        history.clear();
+    }
+
+    private static int[] randomPixels(Random random) {
+        int[] argb = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        return argb;
+    }
+
+    private static Image toImage(int[] argb) {
+        WritableImage image = new WritableImage(WIDTH, HEIGHT);
+        image.getPixelWriter().setPixels(0, 0, WIDTH, HEIGHT, PixelFormat.getIntArgbInstance(), argb, 0, WIDTH);
+        return image;
+    }
+
+    private static int[] pixelsOf(Image image) {
+        int[] argb = new int[WIDTH * HEIGHT];
+        image.getPixelReader().getPixels(0, 0, WIDTH, HEIGHT, PixelFormat.getIntArgbInstance(), argb, 0, WIDTH);
+        return argb;
+    }
+}
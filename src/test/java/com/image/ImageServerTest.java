@@ -0,0 +1,222 @@
+package com.image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 启动本地服务：工作线程被测试算子阻塞时请求在队列中累积，放行后作为一批处理。
+ * 拼接计算的结果须与逐张调用 {@link EdgeDetectionTask#detect} 一致，队列满时返回 503。
+ */
+class ImageServerTest {
+
+    private static final String BLOCKING = "test-blocking";
+    private static final int WIDTH = 40;
+
+    private ImageServer server;
+    private String url;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void stackedBatchMatchesDetect() throws Exception {
+        BlockingOperator blocker = new BlockingOperator();
+        start(blocker, "--workers", "1", "--queue", "64", "--batch", "64");
+        CompletableFuture<Reply> blocked = postAsync(BLOCKING, encode(randomImage(new Random(1), 8, 8)));
+        assertTrue(blocker.started.await(10, TimeUnit.SECONDS), "blocking operator did not start");
+
+        // 包含高度小于 2 * radius 的图像，其所有行都靠近拼接边界
+        Random random = new Random(24);
+        String[] operators = {OperatorRegistry.SOBEL, OperatorRegistry.GAUSSIAN_7X7, OperatorRegistry.SMOOTHED_SOBEL};
+        int[] heights = {1, 2, 3, 5, 6, 7, 31};
+        List<BufferedImage> images = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<CompletableFuture<Reply>> replies = new ArrayList<>();
+        for (String id : operators) {
+            for (int height : heights) {
+                BufferedImage image = randomImage(random, WIDTH, height);
+                images.add(image);
+                ids.add(id);
+                replies.add(postAsync(id, encode(image)));
+            }
+        }
+        awaitQueued(replies.size());
+        blocker.release.countDown();
+        assertEquals(200, blocked.get(10, TimeUnit.SECONDS).status());
+
+        for (int i = 0; i < replies.size(); i++) {
+            Reply reply = replies.get(i).get(30, TimeUnit.SECONDS);
+            BufferedImage image = images.get(i);
+            assertEquals(200, reply.status(), reply::text);
+            int[] expected = new int[WIDTH * image.getHeight()];
+            EdgeDetectionTask.detect(PixelRaster.of(image), OperatorRegistry.get(ids.get(i)), 50, expected);
+            BufferedImage actual = ImageIO.read(new ByteArrayInputStream(reply.body()));
+            assertArrayEquals(expected, PixelRaster.readArgb(actual), ids.get(i) + " height " + image.getHeight());
+        }
+        // 阻塞请求一批，其余请求同在一批
+        assertTrue(stats().contains("batches 2,"), this::stats);
+    }
+
+    @Test
+    void fullQueueIsRejected() throws Exception {
+        BlockingOperator blocker = new BlockingOperator();
+        start(blocker, "--workers", "1", "--queue", "1", "--batch", "1");
+        byte[] body = encode(randomImage(new Random(3), 16, 16));
+        CompletableFuture<Reply> blocked = postAsync(BLOCKING, body);
+        assertTrue(blocker.started.await(10, TimeUnit.SECONDS), "blocking operator did not start");
+        CompletableFuture<Reply> queued = postAsync(OperatorRegistry.SOBEL, body);
+        awaitQueued(1);
+
+        Reply rejected = post(OperatorRegistry.SOBEL, body);
+        assertEquals(503, rejected.status());
+        assertEquals(1, server.getRejected());
+
+        blocker.release.countDown();
+        assertEquals(200, blocked.get(10, TimeUnit.SECONDS).status());
+        assertEquals(200, queued.get(10, TimeUnit.SECONDS).status());
+    }
+
+    private void start(BlockingOperator blocker, String... args) throws IOException {
+        OperatorRegistry.register(blocker);
+        List<String> options = new ArrayList<>(List.of("--host", "127.0.0.1", "--port", "0"));
+        options.addAll(List.of(args));
+        server = new ImageServer(ImageServer.Options.parse(options.toArray(String[]::new)));
+        url = "http://127.0.0.1:" + server.start();
+    }
+
+    private void awaitQueued(int count) throws InterruptedException {
+        Pattern queued = Pattern.compile("queued (\\d+)");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Matcher matcher = queued.matcher(stats());
+            if (matcher.find() && Integer.parseInt(matcher.group(1)) >= count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("queue did not reach " + count + ": " + stats());
+    }
+
+    private String stats() {
+        try {
+            return send("GET", "/stats", null).text();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Reply> postAsync(String operator, byte[] body) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return post(operator, body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, runnable -> new Thread(runnable).start());
+    }
+
+    private Reply post(String operator, byte[] body) throws IOException {
+        return send("POST", "/process?op=" + operator + "&strength=50&format=png", body);
+    }
+
+    private Reply send(String method, String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url + path).toURL().openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Reply(status, in != null ? in.readAllBytes() : new byte[0]);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static BufferedImage randomImage(Random random, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private record Reply(int status, byte[] body) {
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    // 第一次计算时阻塞工作线程，直到测试放行
+    private static final class BlockingOperator implements ImageOperator {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getId() {
+            return BLOCKING;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Blocking test operator";
+        }
+
+        @Override
+        public int getRadius() {
+            return 0;
+        }
+
+        @Override
+        public void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
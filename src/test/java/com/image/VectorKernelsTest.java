@@ -0,0 +1,78 @@
+package com.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 向量实现与标量实现在随机图像上逐位比较，宽度覆盖不足一组车道、恰为整组与带余数的情况。
+ */
+class VectorKernelsTest {
+
+    private interface Kernel {
+        void apply(PixelRaster source, int[] output, int rowStart, int rowEnd, int[] lut);
+    }
+
+    @Test
+    void robertsCrossMatchesScalar() {
+        assertMatches(new RobertsCrossOperator(), VectorKernels::robertsCross);
+    }
+
+    @Test
+    void sobelMatchesScalar() {
+        assertMatches(ConvolutionOperator.sobel(), VectorKernels::sobel);
+    }
+
+    @Test
+    void laplacianMatchesScalar() {
+        assertMatches(ConvolutionOperator.laplacian(), VectorKernels::laplacian);
+    }
+
+    @Test
+    void bandsMatchScalar() {
+        // 按行带调用时每个行带只写自己的行，拼接结果与标量一致
+        Random random = new Random(7);
+        PixelRaster source = randomRaster(random, VectorKernels.lanes() * 5 + 3, 61);
+        int[] lut = EdgeLut.forStrength(50);
+        int[] expected = new int[source.getWidth() * source.getHeight()];
+        int[] actual = new int[expected.length];
+        ConvolutionOperator.sobel().apply(source, expected, 0, source.getHeight(), lut);
+        for (int rowStart = 0; rowStart < source.getHeight(); rowStart += 16) {
+            VectorKernels.sobel(source, actual, rowStart, Math.min(source.getHeight(), rowStart + 16), lut);
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    private static void assertMatches(ImageOperator scalar, Kernel vector) {
+        int lanes = VectorKernels.lanes();
+        int[] widths = {2, 3, lanes - 1, lanes, lanes + 1, lanes + 2, 2 * lanes, 2 * lanes + 1, 3 * lanes + 3, 257};
+        Random random = new Random(42);
+        for (int width : widths) {
+            if (width < 2) {
+                continue;
+            }
+            for (int height : new int[]{2, 3, 17}) {
+                PixelRaster source = randomRaster(random, width, height);
+                for (int strength : new int[]{10, 50, 100}) {
+                    int[] lut = EdgeLut.forStrength(strength);
+                    int[] expected = new int[width * height];
+                    int[] actual = new int[width * height];
+                    scalar.apply(source, expected, 0, height, lut);
+                    vector.apply(source, actual, 0, height, lut);
+                    assertArrayEquals(expected, actual,
+                            scalar.getId() + " " + width + "x" + height + " strength " + strength);
+                }
+            }
+        }
+    }
+
+    private static PixelRaster randomRaster(Random random, int width, int height) {
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = random.nextInt();
+        }
+        return PixelRaster.fromArgb(argb, width, height);
+    }
+}